@@ -178,7 +178,8 @@ namespace Kyub.Internal.NativeInputPlugin {
             Debug.Log (string.Format ("{0} plugin OnData: {1}", GetType ().Name, data.ToJsonPrettyPrintString ()));
             _data = data;
             try {
-                JsonObject response = (JsonObject) JsonNode.ParseJsonString (data["data"]);
+                // Frames arrive already decoded, JSON envelopes carry the data as string
+                JsonObject response = data["data"] as JsonObject ?? (JsonObject) JsonNode.ParseJsonString (data["data"]);
                 string code = response["msg"];
                 switch (code) {
                     case KEYBOARD_PREPARE:
@@ -6,6 +6,7 @@
 using UnityEngine;
 using System;
 using System.Collections.Generic;
+using System.Text;
 using Kyub.Internal.NativeInputPlugin.NiceJson;
 #if UNITY_IOS
 using System.Runtime.InteropServices;
@@ -65,6 +66,17 @@ namespace Kyub.Internal.NativeInputPlugin {
         /// </summary>
         const string _dataReceiver = "OnDataReceive";
 
+        /// <summary>
+        /// Frame header and field types, see FrameWriter.java
+        /// ACHTUNG! Must match the native side
+        /// </summary>
+        const byte FRAME_MAGIC = (byte) 'K';
+        const byte FRAME_VERSION = 2;
+        const byte FRAME_TYPE_INT = 1;
+        const byte FRAME_TYPE_FLOAT = 2;
+        const byte FRAME_TYPE_BOOL = 3;
+        const byte FRAME_TYPE_TEXT = 4;
+
         /// <summary>
         /// Dictionary of plugins
         /// </summary>
@@ -108,22 +120,154 @@ namespace Kyub.Internal.NativeInputPlugin {
         /// <param name="data">data from plugin</param>
         void OnDataReceive (string data) {
             Debug.Log ("Plugins receive data: " + data);
+            try {
+                Dispatch ((JsonObject) JsonNode.ParseJsonString (data));
+            } catch (Exception e) {
+                Debug.LogError (string.Format ("Plugins receive error: {0}, stack: {1}", e.Message, e.StackTrace));
+            }
+
+        }
+
+        /// <summary>
+        /// Handler to process messages coalesced by plugin in one frame
+        /// </summary>
+        /// <param name="data">{"batch": [{"name": plugin, "data": data}, ...]}, in send order</param>
+        void OnBatchReceive (string data) {
             try {
                 JsonObject info = (JsonObject) JsonNode.ParseJsonString (data);
-                if (_plugins.ContainsKey (info["name"])) {
-                    IPlugin plugin = _plugins[info["name"]];
-                    if (info.ContainsKey ("error")) {
-                        plugin.OnError (info);
-                    } else {
-                        plugin.OnData (info);
+                JsonArray batch = (JsonArray) info["batch"];
+                foreach (JsonNode item in batch) {
+                    try {
+                        Dispatch ((JsonObject) item);
+                    } catch (Exception e) {
+                        Debug.LogError (string.Format ("Plugins receive error: {0}, stack: {1}", e.Message, e.StackTrace));
+                    }
+                }
+            } catch (Exception e) {
+                Debug.LogError (string.Format ("Plugins receive error: {0}, stack: {1}", e.Message, e.StackTrace));
+            }
+        }
+
+        /// <summary>
+        /// Handler to process binary frames, sent instead of OnDataReceive when plugin uses the framed protocol
+        /// </summary>
+        /// <param name="data">Base64 frame, each message is delivered as {"name": plugin, "data": {"msg": name, fields..., "id": id}}</param>
+        void OnFrameReceive (string data) {
+            try {
+                byte[] frame = Convert.FromBase64String (data);
+                if (frame.Length < 2 || frame[0] != FRAME_MAGIC || frame[1] != FRAME_VERSION) {
+                    Debug.LogError ("Plugins receive error: unsupported frame");
+                    return;
+                }
+                int position = 2;
+                int count = ReadVarint (frame, ref position);
+                for (int i = 0; i < count; i++) {
+                    JsonObject info = new JsonObject ();
+                    JsonObject response = new JsonObject ();
+                    info["name"] = ReadText (frame, ref position);
+                    ReadVarint (frame, ref position);
+                    response["msg"] = ReadText (frame, ref position);
+                    bool hasId = (ReadByte (frame, ref position) & 1) != 0;
+                    int id = hasId ? Unzigzag (ReadVarint (frame, ref position)) : 0;
+                    int fieldCount = ReadVarint (frame, ref position);
+                    for (int j = 0; j < fieldCount; j++) {
+                        string key = ReadText (frame, ref position);
+                        byte type = ReadByte (frame, ref position);
+                        switch (type) {
+                            case FRAME_TYPE_INT:
+                                response[key] = Unzigzag (ReadVarint (frame, ref position));
+                                break;
+                            case FRAME_TYPE_FLOAT:
+                                response[key] = ReadFloat (frame, ref position);
+                                break;
+                            case FRAME_TYPE_BOOL:
+                                response[key] = ReadByte (frame, ref position) != 0;
+                                break;
+                            case FRAME_TYPE_TEXT:
+                                response[key] = ReadText (frame, ref position);
+                                break;
+                            default:
+                                throw new FormatException ("Unknown field type " + type);
+                        }
+                    }
+                    if (hasId) {
+                        response["id"] = id;
+                    }
+                    info["data"] = response;
+                    try {
+                        Dispatch (info);
+                    } catch (Exception e) {
+                        Debug.LogError (string.Format ("Plugins receive error: {0}, stack: {1}", e.Message, e.StackTrace));
                     }
-                } else {
-                    Debug.LogError (string.Format ("{0} plugin does not exists", info["name"]));
                 }
             } catch (Exception e) {
                 Debug.LogError (string.Format ("Plugins receive error: {0}, stack: {1}", e.Message, e.StackTrace));
             }
+        }
+
+        static byte ReadByte (byte[] frame, ref int position) {
+            if (position >= frame.Length) {
+                throw new FormatException ("Unexpected end of frame");
+            }
+            return frame[position++];
+        }
+
+        // Unsigned LEB128
+        static int ReadVarint (byte[] frame, ref int position) {
+            int value = 0;
+            for (int shift = 0; shift < 35; shift += 7) {
+                byte b = ReadByte (frame, ref position);
+                value |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new FormatException ("Malformed varint");
+        }
+
+        static int Unzigzag (int value) {
+            return (int) ((uint) value >> 1) ^ -(value & 1);
+        }
+
+        // 4 bytes little endian
+        static float ReadFloat (byte[] frame, ref int position) {
+            if (position > frame.Length - 4) {
+                throw new FormatException ("Unexpected end of frame");
+            }
+            byte[] bytes = new byte[] { frame[position], frame[position + 1], frame[position + 2], frame[position + 3] };
+            position += 4;
+            if (!BitConverter.IsLittleEndian) {
+                Array.Reverse (bytes);
+            }
+            return BitConverter.ToSingle (bytes, 0);
+        }
+
+        // Varint byte length + UTF-8 bytes
+        static string ReadText (byte[] frame, ref int position) {
+            int length = ReadVarint (frame, ref position);
+            if (length < 0 || length > frame.Length - position) {
+                throw new FormatException ("Unexpected end of frame");
+            }
+            string text = Encoding.UTF8.GetString (frame, position, length);
+            position += length;
+            return text;
+        }
 
+        /// <summary>
+        /// Send data or error to its plugin
+        /// </summary>
+        /// <param name="info">{"name": plugin, "data": data} or {"name": plugin, "error": error}</param>
+        void Dispatch (JsonObject info) {
+            if (_plugins.ContainsKey (info["name"])) {
+                IPlugin plugin = _plugins[info["name"]];
+                if (info.ContainsKey ("error")) {
+                    plugin.OnError (info);
+                } else {
+                    plugin.OnData (info);
+                }
+            } else {
+                Debug.LogError (string.Format ("{0} plugin does not exists", info["name"]));
+            }
         }
 
 	}
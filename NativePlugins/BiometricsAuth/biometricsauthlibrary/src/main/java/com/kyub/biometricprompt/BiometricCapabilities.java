@@ -0,0 +1,172 @@
+package com.kyub.biometricprompt;
+
+import android.app.Activity;
+import android.app.Application;
+import android.app.KeyguardManager;
+import android.content.Context;
+import android.os.Bundle;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/*
+ * Snapshot of the biometric capabilities of the device (sdk, sensor, enrolled fingerprints,
+ * permission and secure lock screen), so callers can poll it without system service calls.
+ * The snapshot is computed once and refreshed in background when an activity resumes, which covers changes
+ * made in the system settings (fingerprint enrolled/removed, lock screen disabled).
+ * There is no public broadcast for enrollment changes.
+ */
+public class BiometricCapabilities {
+
+    private static volatile BiometricCapabilities current;
+    private static boolean isRegistered = false;
+    private static ExecutorService executor;
+
+    private final boolean isSdkVersionSupported;
+    private final boolean isFingerprintAvailable;
+    private final boolean isPermissionGranted;
+    private final boolean isKeyguardSecure;
+    private final long timestamp;
+
+    private BiometricCapabilities(Context context) {
+        isSdkVersionSupported = BiometricUtils.isSdkVersionSupported();
+        isFingerprintAvailable = isSdkVersionSupported && checkFingerprintAvailable(context);
+        isPermissionGranted = checkPermissionGranted(context);
+        KeyguardManager keyguardManager = (KeyguardManager) context.getSystemService(Context.KEYGUARD_SERVICE);
+        isKeyguardSecure = keyguardManager != null && keyguardManager.isKeyguardSecure();
+        timestamp = System.currentTimeMillis();
+    }
+
+    /*
+     * Last snapshot, computed on the calling thread when there is none yet
+     */
+    public static BiometricCapabilities get(Context context) {
+        BiometricCapabilities capabilities = current;
+        if (capabilities == null) {
+            capabilities = refresh(context);
+        }
+        return capabilities;
+    }
+
+    /*
+     * Compute a new snapshot, safe to call from a background thread
+     */
+    public static BiometricCapabilities refresh(Context context) {
+        register(context);
+        BiometricCapabilities capabilities = new BiometricCapabilities(context);
+        current = capabilities;
+        return capabilities;
+    }
+
+    /*
+     * Drop the snapshot, next get() computes a new one
+     */
+    public static void invalidate() {
+        current = null;
+    }
+
+    /*
+     * Single background thread for refreshes and other prewarm work (see Bridge.prewarm)
+     */
+    public static synchronized ExecutorService getExecutor() {
+        if (executor == null) {
+            executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "BiometricsPrewarm");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return executor;
+    }
+
+    // Refresh snapshot whenever an activity of the app comes back to foreground, off the main thread
+    private static synchronized void register(Context context) {
+        if (isRegistered) {
+            return;
+        }
+        final Context applicationContext = context.getApplicationContext();
+        if (applicationContext instanceof Application) {
+            final Runnable refreshRunnable = new Runnable() {
+                @Override
+                public void run() {
+                    current = new BiometricCapabilities(applicationContext);
+                }
+            };
+            ((Application) applicationContext).registerActivityLifecycleCallbacks(new Application.ActivityLifecycleCallbacks() {
+                @Override
+                public void onActivityResumed(Activity activity) {
+                    getExecutor().execute(refreshRunnable);
+                }
+
+                @Override
+                public void onActivityCreated(Activity activity, Bundle savedInstanceState) {}
+
+                @Override
+                public void onActivityStarted(Activity activity) {}
+
+                @Override
+                public void onActivityPaused(Activity activity) {}
+
+                @Override
+                public void onActivityStopped(Activity activity) {}
+
+                @Override
+                public void onActivitySaveInstanceState(Activity activity, Bundle outState) {}
+
+                @Override
+                public void onActivityDestroyed(Activity activity) {}
+            });
+            isRegistered = true;
+        }
+    }
+
+    private static boolean checkFingerprintAvailable(Context context) {
+        try {
+            return BiometricUtils.isFingerprintAvailable(context);
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    private static boolean checkPermissionGranted(Context context) {
+        try {
+            return BiometricUtils.isPermissionGranted(context);
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    public boolean isSdkVersionSupported() {
+        return isSdkVersionSupported;
+    }
+
+    public boolean isFingerprintAvailable() {
+        return isFingerprintAvailable;
+    }
+
+    public boolean isPermissionGranted() {
+        return isPermissionGranted;
+    }
+
+    public boolean isKeyguardSecure() {
+        return isKeyguardSecure;
+    }
+
+    /*
+     * Fingerprint can be used: supported sdk, enrolled sensor and permission granted
+     */
+    public boolean isAvailable() {
+        return isFingerprintAvailable && isPermissionGranted;
+    }
+
+    /*
+     * Time the snapshot was computed (System.currentTimeMillis)
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+}
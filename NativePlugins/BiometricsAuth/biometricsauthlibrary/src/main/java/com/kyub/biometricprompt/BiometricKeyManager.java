@@ -0,0 +1,97 @@
+package com.kyub.biometricprompt;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.security.keystore.KeyGenParameterSpec;
+import android.security.keystore.KeyPermanentlyInvalidatedException;
+import android.security.keystore.KeyProperties;
+
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.KeyStore;
+
+import javax.crypto.Cipher;
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+
+/*
+ * Owner of the AndroidKeyStore AES key that backs fingerprint authentication.
+ * The KeyStore is loaded once and the key is created once, then reused by every authentication.
+ * Each authentication gets its own Cipher, so a prewarm or a second prompt never re-inits
+ * the Cipher of an authentication in progress.
+ * The key is only regenerated when the system invalidated it (KeyPermanentlyInvalidatedException,
+ * e.g. after a new fingerprint was enrolled).
+ */
+@TargetApi(Build.VERSION_CODES.M)
+public class BiometricKeyManager {
+
+    private static final String KEY_STORE = "AndroidKeyStore";
+    private static final String KEY_NAME = "biometrics";
+    private static final String TRANSFORMATION = KeyProperties.KEY_ALGORITHM_AES + "/"
+            + KeyProperties.BLOCK_MODE_CBC + "/"
+            + KeyProperties.ENCRYPTION_PADDING_PKCS7;
+
+    private static BiometricKeyManager instance;
+
+    private KeyStore keyStore;
+    private SecretKey key;
+
+    public static synchronized BiometricKeyManager instance() {
+        if (instance == null) {
+            instance = new BiometricKeyManager();
+        }
+        return instance;
+    }
+
+    /*
+     * Load KeyStore and create the key when missing, safe to call from a background thread
+     */
+    public synchronized SecretKey getOrCreateKey() throws GeneralSecurityException, IOException {
+        if (key == null) {
+            Key storedKey = getKeyStore().getKey(KEY_NAME, null);
+            key = storedKey instanceof SecretKey ? (SecretKey) storedKey : generateKey();
+        }
+        return key;
+    }
+
+    /*
+     * New Cipher initialized for encryption with the shared key, ready for a CryptoObject.
+     * Returns null when the key could not be created or used.
+     */
+    public synchronized Cipher initCipher() {
+        try {
+            Cipher cipher = Cipher.getInstance(TRANSFORMATION);
+            try {
+                cipher.init(Cipher.ENCRYPT_MODE, getOrCreateKey());
+            } catch (KeyPermanentlyInvalidatedException e) {
+                getKeyStore().deleteEntry(KEY_NAME);
+                key = generateKey();
+                cipher.init(Cipher.ENCRYPT_MODE, key);
+            }
+            return cipher;
+        } catch (GeneralSecurityException | IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    private KeyStore getKeyStore() throws GeneralSecurityException, IOException {
+        if (keyStore == null) {
+            KeyStore store = KeyStore.getInstance(KEY_STORE);
+            store.load(null);
+            keyStore = store;
+        }
+        return keyStore;
+    }
+
+    private SecretKey generateKey() throws GeneralSecurityException {
+        KeyGenerator keyGenerator = KeyGenerator.getInstance(KeyProperties.KEY_ALGORITHM_AES, KEY_STORE);
+        keyGenerator.init(new KeyGenParameterSpec.Builder(KEY_NAME, KeyProperties.PURPOSE_ENCRYPT | KeyProperties.PURPOSE_DECRYPT)
+                .setBlockModes(KeyProperties.BLOCK_MODE_CBC)
+                .setUserAuthenticationRequired(true)
+                .setEncryptionPaddings(KeyProperties.ENCRYPTION_PADDING_PKCS7)
+                .build());
+        return keyGenerator.generateKey();
+    }
+}
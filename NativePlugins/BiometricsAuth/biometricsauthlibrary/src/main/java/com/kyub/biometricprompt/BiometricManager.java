@@ -48,17 +48,18 @@ public class BiometricManager extends BiometricManagerV23 {
         }
 
 
-        if(!BiometricUtils.isSdkVersionSupported()) {
+        BiometricCapabilities capabilities = BiometricCapabilities.get(context);
+        if(!capabilities.isSdkVersionSupported()) {
             biometricCallback.onSdkVersionNotSupported();
             return;
         }
 
-        if(!BiometricUtils.isPermissionGranted(context)) {
+        if(!capabilities.isPermissionGranted()) {
             biometricCallback.onBiometricAuthenticationPermissionNotGranted();
             return;
         }
 
-        if(!BiometricUtils.isFingerprintAvailable(context)) {
+        if(!capabilities.isFingerprintAvailable()) {
             biometricCallback.onBiometricAuthenticationNotAvailable();
             return;
         }
@@ -4,25 +4,8 @@ import com.kyub.biometricauthlibrary.R;
 import android.annotation.TargetApi;
 import android.content.Context;
 import android.os.Build;
-import android.security.keystore.KeyGenParameterSpec;
-import android.security.keystore.KeyPermanentlyInvalidatedException;
-import android.security.keystore.KeyProperties;
-
-import java.io.IOException;
-import java.security.InvalidAlgorithmParameterException;
-import java.security.InvalidKeyException;
-import java.security.KeyStore;
-import java.security.KeyStoreException;
-import java.security.NoSuchAlgorithmException;
-import java.security.NoSuchProviderException;
-import java.security.UnrecoverableKeyException;
-import java.security.cert.CertificateException;
-import java.util.UUID;
 
 import javax.crypto.Cipher;
-import javax.crypto.KeyGenerator;
-import javax.crypto.NoSuchPaddingException;
-import javax.crypto.SecretKey;
 
 import androidx.core.hardware.fingerprint.FingerprintManagerCompat;
 import androidx.core.os.CancellationSignal;
@@ -31,11 +14,7 @@ import androidx.core.os.CancellationSignal;
 @TargetApi(Build.VERSION_CODES.M)
 public class BiometricManagerV23 {
 
-    private static final String KEY_NAME = UUID.randomUUID().toString();
-
     private Cipher cipher;
-    private KeyStore keyStore;
-    private KeyGenerator keyGenerator;
     private FingerprintManagerCompat.CryptoObject cryptoObject;
 
 
@@ -50,8 +29,6 @@ public class BiometricManagerV23 {
 
 
     public void displayBiometricPromptV23(final BiometricCallback biometricCallback) {
-        generateKey();
-
         if(initCipher()) {
 
             cryptoObject = new FingerprintManagerCompat.CryptoObject(cipher);
@@ -90,6 +67,8 @@ public class BiometricManagerV23 {
                     }, null);
 
             displayBiometricDialog(biometricCallback);
+        } else {
+            biometricCallback.onBiometricAuthenticationInternalError("Biometric key could not be initialized");
         }
     }
 
@@ -118,62 +97,8 @@ public class BiometricManagerV23 {
         }
     }
 
-    private void generateKey() {
-        try {
-
-            keyStore = KeyStore.getInstance("AndroidKeyStore");
-            keyStore.load(null);
-
-            keyGenerator = KeyGenerator.getInstance(KeyProperties.KEY_ALGORITHM_AES, "AndroidKeyStore");
-            keyGenerator.init(new
-                    KeyGenParameterSpec.Builder(KEY_NAME, KeyProperties.PURPOSE_ENCRYPT | KeyProperties.PURPOSE_DECRYPT)
-                    .setBlockModes(KeyProperties.BLOCK_MODE_CBC)
-                    .setUserAuthenticationRequired(true)
-                    .setEncryptionPaddings(KeyProperties.ENCRYPTION_PADDING_PKCS7)
-                    .build());
-
-            keyGenerator.generateKey();
-
-        } catch (KeyStoreException
-                | NoSuchAlgorithmException
-                | NoSuchProviderException
-                | InvalidAlgorithmParameterException
-                | CertificateException
-                | IOException exc) {
-            exc.printStackTrace();
-        }
-    }
-
-
-
     private boolean initCipher() {
-        try {
-            cipher = Cipher.getInstance(
-                    KeyProperties.KEY_ALGORITHM_AES + "/"
-                            + KeyProperties.BLOCK_MODE_CBC + "/"
-                            + KeyProperties.ENCRYPTION_PADDING_PKCS7);
-
-        } catch (NoSuchAlgorithmException |
-                NoSuchPaddingException e) {
-            throw new RuntimeException("Failed to get Cipher", e);
-        }
-
-        try {
-            keyStore.load(null);
-            SecretKey key = (SecretKey) keyStore.getKey(KEY_NAME,
-                    null);
-            cipher.init(Cipher.ENCRYPT_MODE, key);
-            return true;
-
-
-        } catch (KeyPermanentlyInvalidatedException e) {
-            return false;
-
-        } catch (KeyStoreException | CertificateException
-                | UnrecoverableKeyException | IOException
-                | NoSuchAlgorithmException | InvalidKeyException e) {
-
-            throw new RuntimeException("Failed to init Cipher", e);
-        }
+        cipher = BiometricKeyManager.instance().initCipher();
+        return cipher != null;
     }
 }
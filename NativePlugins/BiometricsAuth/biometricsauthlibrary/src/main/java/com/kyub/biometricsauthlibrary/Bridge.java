@@ -1,7 +1,6 @@
  package com.kyub.biometricsauthlibrary;
 
  import android.Manifest;
- import android.app.KeyguardManager;
  import android.content.Context;
  import android.content.pm.PackageManager;
  import android.os.Build;
@@ -12,6 +11,8 @@
  import androidx.core.app.ActivityCompat;
  import androidx.core.hardware.fingerprint.FingerprintManagerCompat;
 
+ import java.util.concurrent.ExecutorService;
+
  public class Bridge {
      private Context context;
      private static boolean useLegacyMode = false;
@@ -36,6 +37,35 @@
          this.context = context;
      }
 
+     // Load KeyStore, create key and check capabilities on a background thread
+     // so that startBiometricsAuth only has to init a Cipher and show the prompt (e.g. call when login screen opens)
+     public void prewarm() {
+         final Context context = getContext();
+         if (context == null) {
+             return;
+         }
+         getPrewarmExecutor().execute(new Runnable() {
+             @Override
+             public void run() {
+                 try {
+                     BiometricCapabilities.refresh(context);
+                     // Only the fingerprint (pre Android P) paths use a CryptoObject, each authentication inits its own Cipher
+                     if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M && !BiometricUtils.isBiometricPromptEnabled()) {
+                         BiometricKeyManager.instance().getOrCreateKey();
+                     }
+                 }
+                 catch (Exception e) {
+                     e.printStackTrace();
+                 }
+             }
+         });
+     }
+
+     // Shared with the capability refresh done when an activity resumes
+     private static ExecutorService getPrewarmExecutor() {
+         return BiometricCapabilities.getExecutor();
+     }
+
      public void startBiometricsAuth(String objectName, String title, String subtitle, String description, String cancelName) {
          authenticateUser(objectName, title, subtitle, description, cancelName);
      }
@@ -61,22 +91,29 @@
          }
      }
 
-     public boolean isBiometricHardwareAvailable() {
-         try {
-             return BiometricUtils.isSdkVersionSupported() && BiometricUtils.isFingerprintAvailable(context);
-         }
-         catch (Exception e) {}
+     // Cached capability snapshot, refreshed by prewarm() and when an activity resumes
+     public BiometricCapabilities getCapabilities() {
+         return BiometricCapabilities.get(getContext());
+     }
 
-         return false;
+     // Recompute capability snapshot now (e.g. after the user returns from settings)
+     public BiometricCapabilities refreshCapabilities() {
+         return BiometricCapabilities.refresh(getContext());
+     }
+
+     public boolean isBiometricHardwareAvailable() {
+         return getCapabilities().isFingerprintAvailable();
      }
 
      public boolean isPermissionGranted() {
-         try {
-            return BiometricUtils.isPermissionGranted(context);
-         }
-         catch (Exception e) {}
+         return getCapabilities().isPermissionGranted();
+     }
 
-         return false;
+     private Context getContext() {
+         if (this.context == null) {
+             this.context = UnityPlayer.currentActivity;
+         }
+         return this.context;
      }
 
      private void authenticateUser(final String objectName, String title, String subtitle, String description, String cancelName) {
@@ -124,18 +161,17 @@
 
      private void legacyUserAuthentication(final String objectName) {
 
-         KeyguardManager keyguardManager = (KeyguardManager) this.context.getSystemService(Context.KEYGUARD_SERVICE);
-         FingerprintManagerCompat fingerprintManager = FingerprintManagerCompat.from(this.context);//(FingerprintManager) this.context.getSystemService(Context.FINGERPRINT_SERVICE);
-         if (!isBiometricHardwareAvailable()) {
+         BiometricCapabilities capabilities = getCapabilities();
+         if (!capabilities.isFingerprintAvailable()) {
              String error = "Your Device does not have a Biometric Sensor";
 
              UnityPlayer.UnitySendMessage(objectName, BiometricHandler.UNITY_CALLBACK_FINALIZE_NAME, error);
 
-         } else if (!isPermissionGranted()) {
+         } else if (!capabilities.isPermissionGranted()) {
              String error = "Biometric authentication permission not granted";
 
              UnityPlayer.UnitySendMessage(objectName, BiometricHandler.UNITY_CALLBACK_FINALIZE_NAME, error);
-         } else if (keyguardManager == null || !keyguardManager.isKeyguardSecure()) {
+         } else if (!capabilities.isKeyguardSecure()) {
              String error = "Lock screen security not enabled in your device settings";
 
              UnityPlayer.UnitySendMessage(objectName, FingerprintHandler.UNITY_CALLBACK_FINALIZE_NAME, error);
@@ -145,6 +181,7 @@
              crypto.generateKey();
 
              if (crypto.initCipher()) {
+                 FingerprintManagerCompat fingerprintManager = FingerprintManagerCompat.from(this.context);
                  FingerprintManagerCompat.CryptoObject cryptoObject = new FingerprintManagerCompat.CryptoObject(crypto.getCipher());
                  FingerprintHandler instance = FingerprintHandler.instance();
                  instance.Init(this.context);
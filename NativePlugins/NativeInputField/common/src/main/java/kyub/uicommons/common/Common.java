@@ -6,25 +6,141 @@
 
 package kyub.uicommons.common;
 
-import org.json.JSONException;
-import org.json.JSONObject;
+import android.os.Handler;
+import android.os.Looper;
+import android.view.Choreographer;
 import com.unity3d.player.UnityPlayer;
 
+import java.util.ArrayList;
+
 public class Common {
 
-    String object = "Plugins";
-    String receiver = "OnDataReceive";
+    // Envelope used by send(Message)
+    public static final int PROTOCOL_JSON = 0;
+    public static final int PROTOCOL_FRAMED = 1;
+
+    private static volatile int protocol = PROTOCOL_JSON;
+    private static volatile boolean coalescing = false;
+    private static final FrameWriter frameWriter = new FrameWriter();
+
+    // Outgoing messages waiting for the next frame (guarded by itself)
+    private static final ArrayList<Message> pending = new ArrayList<>();
+    private static boolean isFlushScheduled = false;
+    // Messages taken by flush, delivered without holding pending (guarded by flushLock, which keeps batches in order)
+    private static final ArrayList<Message> flushing = new ArrayList<>();
+    private static final Object flushLock = new Object();
+    private static Handler mainHandler;
+
+    static String object = "Plugins";
+    static String receiver = "OnDataReceive";
+    static String frameReceiver = "OnFrameReceive";
+    static String batchReceiver = "OnBatchReceive";
+
+    private static final Choreographer.FrameCallback flushCallback = new Choreographer.FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            flush();
+        }
+    };
+
+    private static final Runnable scheduleFlushRunnable = new Runnable() {
+        @Override
+        public void run() {
+            Choreographer.getInstance().postFrameCallback(flushCallback);
+        }
+    };
+
+    // Select envelope for outgoing messages
+    public static void setProtocol(int value) {
+        flush();
+        protocol = value == PROTOCOL_FRAMED ? PROTOCOL_FRAMED : PROTOCOL_JSON;
+    }
+
+    public static int getProtocol() {
+        return protocol;
+    }
+
+    // Collect outgoing messages and send them once per frame as a single batch
+    public static void setCoalescing(boolean value) {
+        coalescing = value;
+        if (!value) {
+            flush();
+        }
+    }
+
+    public static boolean isCoalescing() {
+        return coalescing;
+    }
+
+    // Send typed message using current protocol, queued until next frame when coalescing
+    public void send(Message message) {
+        if (coalescing) {
+            enqueue(message);
+        } else {
+            sendNow(message);
+        }
+    }
+
+    // Send typed message without waiting for the next frame (pending messages go first)
+    public void sendImmediate(Message message) {
+        if (coalescing) {
+            enqueue(message);
+            flush();
+        } else {
+            sendNow(message);
+        }
+    }
+
+    // Send all pending messages as one batch
+    public static void flush() {
+        synchronized (flushLock) {
+            int count;
+            synchronized (pending) {
+                isFlushScheduled = false;
+                count = pending.size();
+                for (int i = 0; i < count; i++) {
+                    flushing.add(pending.get(i));
+                }
+                pending.clear();
+            }
+            if (count == 0) {
+                return;
+            }
+            boolean isTraced = Tracer.begin("Common.flush");
+            long start = Metrics.start();
+            try {
+                if (protocol == PROTOCOL_FRAMED) {
+                    String frame;
+                    synchronized (frameWriter) {
+                        frameWriter.begin();
+                        for (int i = 0; i < count; i++) {
+                            frameWriter.write(flushing.get(i));
+                        }
+                        frame = frameWriter.finish();
+                    }
+                    deliver(frameReceiver, frame, count);
+                } else {
+                    deliver(batchReceiver, Envelope.batch(flushing, count), count);
+                }
+            } finally {
+                for (int i = 0; i < count; i++) {
+                    flushing.get(i).recycle();
+                }
+                flushing.clear();
+            }
+            Metrics.record(Metrics.SEND_DATA, start);
+            Tracer.end(isTraced);
+        }
+    }
 
     // Send data in JSON format to Unity
     public void sendData(String plugin, String data) {
-        JSONObject info = new JSONObject();
-        try {
-            info.put("name", plugin);
-            info.put("data", data);
-        } catch (JSONException e) {
-            e.printStackTrace();
+        if (coalescing) {
+            flush();
         }
-        UnityPlayer.UnitySendMessage(object, receiver, info.toString());
+        long start = Metrics.start();
+        deliver(receiver, Envelope.data(plugin, data), 1);
+        Metrics.record(Metrics.SEND_DATA, start);
     }
 
     // Send error code without data
@@ -34,17 +150,77 @@ public class Common {
 
     // Send error in JSON format to Unity
     public void sendError(String plugin, String code, String data) {
-        JSONObject error = new JSONObject();
-        JSONObject info = new JSONObject();
-        try {
-            error.put("code", code);
-            error.put("message", data);
-            info.put("name", plugin);
-            info.put("error", error);
-        } catch (JSONException e) {
-            e.printStackTrace();
-        }
-        UnityPlayer.UnitySendMessage(object, receiver, info.toString());
+        if (coalescing) {
+            flush();
+        }
+        deliver(receiver, Envelope.error(plugin, code, data), 1);
+    }
+
+    // Serialize and deliver one message
+    private void sendNow(Message message) {
+        boolean isTraced = Tracer.begin("Common.send");
+        long start = Metrics.start();
+        if (protocol == PROTOCOL_FRAMED) {
+            String frame;
+            synchronized (frameWriter) {
+                frameWriter.begin();
+                frameWriter.write(message);
+                frame = frameWriter.finish();
+            }
+            deliver(frameReceiver, frame, 1);
+        } else {
+            deliver(receiver, Envelope.data(message.plugin, message.toJson().toString()), 1);
+        }
+        message.recycle();
+        Metrics.record(Metrics.SEND_DATA, start);
+        Tracer.end(isTraced);
+    }
+
+    // Hand payload to Unity
+    private static void deliver(String method, String payload, int messageCount) {
+        Metrics.add(Metrics.MESSAGES_OUT, messageCount);
+        Metrics.add(Metrics.BYTES_SERIALIZED, payload.length());
+        SessionRecorder.recordOutbound(method, payload);
+        UnityPlayer.UnitySendMessage(object, method, payload);
+    }
+
+    // Queue message, replacing in place the pending one it supersedes so order with other messages is kept
+    private static void enqueue(Message message) {
+        synchronized (pending) {
+            boolean isReplaced = false;
+            if (message.isCoalescable()) {
+                for (int i = pending.size() - 1; i >= 0; i--) {
+                    Message previous = pending.get(i);
+                    if (previous.supersededBy(message)) {
+                        pending.set(i, message);
+                        previous.recycle();
+                        Metrics.count(Metrics.COALESCED);
+                        isReplaced = true;
+                        break;
+                    }
+                }
+            }
+            if (!isReplaced) {
+                pending.add(message);
+            }
+            if (!isFlushScheduled) {
+                isFlushScheduled = true;
+                scheduleFlush();
+            }
+        }
+    }
+
+    // Choreographer callbacks must be posted from the main looper
+    private static void scheduleFlush() {
+        Looper mainLooper = Looper.getMainLooper();
+        if (Looper.myLooper() == mainLooper) {
+            Choreographer.getInstance().postFrameCallback(flushCallback);
+        } else {
+            if (mainHandler == null) {
+                mainHandler = new Handler(mainLooper);
+            }
+            mainHandler.post(scheduleFlushRunnable);
+        }
     }
 
 }
@@ -0,0 +1,23 @@
+package kyub.uicommons.common;
+
+import android.os.Build;
+import android.os.Trace;
+
+// Systrace / Perfetto sections around bridge hot paths, only emitted while Metrics are enabled
+public class Tracer {
+
+    // Begin section, pass result to end() so sections stay balanced if Metrics are toggled meanwhile
+    public static boolean begin(String section) {
+        if (Metrics.isEnabled() && Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2) {
+            Trace.beginSection(section);
+            return true;
+        }
+        return false;
+    }
+
+    public static void end(boolean isBegun) {
+        if (isBegun) {
+            Trace.endSection();
+        }
+    }
+}
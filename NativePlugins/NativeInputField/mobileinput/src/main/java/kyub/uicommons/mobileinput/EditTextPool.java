@@ -0,0 +1,78 @@
+package kyub.uicommons.mobileinput;
+
+import android.content.ComponentCallbacks2;
+import android.view.View;
+import android.widget.EditText;
+
+import java.util.ArrayList;
+
+// Bounded pool of detached EditTexts reused by CREATE_EDIT / REMOVE_EDIT
+// Views are bucketed by multiline and password, the settings that are costly to switch
+// Must be used from UI thread only
+public class EditTextPool {
+
+    private static final int DEFAULT_MAX_PER_KEY = 4;
+
+    private static int maxPerKey = DEFAULT_MAX_PER_KEY;
+    @SuppressWarnings("unchecked")
+    private static final ArrayList<EditText>[] buckets = new ArrayList[] {
+            new ArrayList<EditText>(), new ArrayList<EditText>(), new ArrayList<EditText>(), new ArrayList<EditText>()
+    };
+
+    // Set how many views are kept for each configuration (0 disables pooling)
+    public static void setMaxPerKey(int value) {
+        maxPerKey = Math.max(0, value);
+        for (ArrayList<EditText> bucket : buckets) {
+            trim(bucket, maxPerKey);
+        }
+    }
+
+    // Take a pooled view with same configuration, or null if none
+    static EditText obtain(boolean multiline, boolean password) {
+        ArrayList<EditText> bucket = buckets[getKey(multiline, password)];
+        int count = bucket.size();
+        return count > 0 ? bucket.remove(count - 1) : null;
+    }
+
+    // Reset a detached view and keep it for reuse, dropped when pool is full
+    static void recycle(EditText edit, boolean multiline, boolean password) {
+        ArrayList<EditText> bucket = buckets[getKey(multiline, password)];
+        if (edit.getParent() != null || bucket.size() >= maxPerKey) {
+            return;
+        }
+        edit.setOnFocusChangeListener(null);
+        edit.setOnEditorActionListener(null);
+        edit.setText("");
+        edit.setHint(null);
+        edit.setEnabled(true);
+        edit.setVisibility(View.VISIBLE);
+        edit.setTranslationX(0);
+        edit.setTranslationY(0);
+        bucket.add(edit);
+    }
+
+    // Release pooled views according to memory pressure
+    static void onTrimMemory(int level) {
+        int keep = level >= ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL
+                ? 0 : maxPerKey / 2;
+        for (ArrayList<EditText> bucket : buckets) {
+            trim(bucket, keep);
+        }
+    }
+
+    static void clear() {
+        for (ArrayList<EditText> bucket : buckets) {
+            bucket.clear();
+        }
+    }
+
+    private static int getKey(boolean multiline, boolean password) {
+        return (multiline ? 1 : 0) | (password ? 2 : 0);
+    }
+
+    private static void trim(ArrayList<EditText> bucket, int size) {
+        while (bucket.size() > size) {
+            bucket.remove(bucket.size() - 1);
+        }
+    }
+}
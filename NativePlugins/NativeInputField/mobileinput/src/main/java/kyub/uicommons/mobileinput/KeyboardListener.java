@@ -1,8 +1,7 @@
 package kyub.uicommons.mobileinput;
 
-import org.json.JSONException;
-import org.json.JSONObject;
 import kyub.uicommons.common.Common;
+import kyub.uicommons.common.Message;
 
 public class KeyboardListener implements KeyboardObserver {
 
@@ -12,17 +11,21 @@ public class KeyboardListener implements KeyboardObserver {
     @Override
     public void onKeyboardHeight(float height, int keyboardHeight, int orientation) {
         boolean isShow = (keyboardHeight > 0);
-        JSONObject json = new JSONObject();
-        try {
-            json.put("msg", Plugin.KEYBOARD_ACTION);
-            json.put("show", isShow);
-            json.put("height", height);
-        } catch (JSONException e) {}
         if (isPreviousState != isShow) {
             isPreviousState = isShow;
-            common.sendData(Plugin.name, json.toString());
+            common.send(Message.obtain(Plugin.name, Plugin.KEYBOARD_ACTION_KIND, Plugin.KEYBOARD_ACTION)
+                    .putBool("show", isShow)
+                    .putFloat("height", height));
         }
     }
 
-}
+    @Override
+    public void onKeyboardProgress(float height, int keyboardHeight, float fraction, boolean isShow) {
+        common.send(Message.obtain(Plugin.name, Plugin.KEYBOARD_PROGRESS_KIND, Plugin.KEYBOARD_PROGRESS)
+                .putBool("show", isShow)
+                .putFloat("height", height)
+                .putFloat("fraction", fraction)
+                .setCoalescable(true));
+    }
 
+}
@@ -2,6 +2,8 @@ package kyub.uicommons.mobileinput;
 
 public interface KeyboardObserver {
     void onKeyboardHeight(float height, int keyboardHeight, int orientation);
+
+    void onKeyboardProgress(float height, int keyboardHeight, float fraction, boolean isShow);
 }
 
 
@@ -1,18 +1,29 @@
 package kyub.uicommons.mobileinput;
 
+import android.annotation.TargetApi;
 import android.app.Activity;
+import android.content.Context;
+import android.content.SharedPreferences;
 import android.content.res.Configuration;
 import android.content.res.Resources;
 import android.graphics.Point;
 import android.graphics.Rect;
 import android.graphics.drawable.ColorDrawable;
+import android.os.Build;
+import android.provider.Settings;
+import android.view.Display;
 import android.view.Gravity;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.view.ViewTreeObserver;
+import android.view.WindowInsets;
+import android.view.WindowInsetsAnimation;
 import android.view.WindowManager;
 import android.widget.PopupWindow;
+import kyub.uicommons.common.Metrics;
+
+import java.util.List;
 
 public class KeyboardProvider extends PopupWindow {
 
@@ -22,12 +33,33 @@ public class KeyboardProvider extends PopupWindow {
     private View popupView;
     private View parentView;
     private Activity activity;
+    private Display display;
+
+    // Reused on every layout, observer is only notified when height or orientation changed
+    private final Point screenSize = new Point();
+    private final Rect visibleFrame = new Rect();
+    private int lastKeyboardHeight = -1;
+    private int lastOrientation = -1;
+
+    // Last heights per orientation and IME, persisted for KEYBOARD_PREPARE of next sessions
+    private static final String PREFERENCES_NAME = "kyub.uicommons.mobileinput.keyboard";
+    private SharedPreferences preferences;
+    private String imePackage = "";
+
+    // Keyboard animation stream (API 30+), at most one frame per display refresh
+    private boolean isProgressEnabled;
+    private long progressIntervalNanos;
+    private long lastProgressNanos;
 
     // Constructor
     public KeyboardProvider(Activity activity, ViewGroup parent, KeyboardObserver listener) {
         super(activity);
         this.observer = listener;
         this.activity = activity;
+        this.display = activity.getWindowManager().getDefaultDisplay();
+        // Loaded asynchronously by the framework, first read is expected on focus
+        this.preferences = activity.getApplicationContext().getSharedPreferences(PREFERENCES_NAME, Context.MODE_PRIVATE);
+        updateImePackage();
         Resources resources = this.activity.getResources();
         String packageName = this.activity.getPackageName();
         int id = resources.getIdentifier("popup", "layout", packageName);
@@ -41,42 +73,141 @@ public class KeyboardProvider extends PopupWindow {
         setHeight(WindowManager.LayoutParams.MATCH_PARENT);
         setBackgroundDrawable(new ColorDrawable(0));
         showAtLocation(parentView, Gravity.NO_GRAVITY, 0, 0);
-        popupView.getViewTreeObserver().addOnGlobalLayoutListener(new ViewTreeObserver.OnGlobalLayoutListener() {
-            @Override
-            public void onGlobalLayout() {
-                if (popupView != null) {
-                    handleOnGlobalLayout();
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
+            popupView.setOnApplyWindowInsetsListener(new View.OnApplyWindowInsetsListener() {
+                @Override
+                public WindowInsets onApplyWindowInsets(View v, WindowInsets insets) {
+                    handleOnApplyWindowInsets(insets);
+                    return v.onApplyWindowInsets(insets);
                 }
-            }
-        });
+            });
+        } else {
+            popupView.getViewTreeObserver().addOnGlobalLayoutListener(new ViewTreeObserver.OnGlobalLayoutListener() {
+                @Override
+                public void onGlobalLayout() {
+                    if (popupView != null) {
+                        handleOnGlobalLayout();
+                    }
+                }
+            });
+        }
     }
 
     // Close fake popup
     public void disable() {
+        setProgressEnabled(false);
         dismiss();
     }
 
+    // Stream interpolated keyboard height while IME animates, ignored before API 30
+    public void setProgressEnabled(boolean value) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.R || isProgressEnabled == value) {
+            return;
+        }
+        isProgressEnabled = value;
+        if (value) {
+            float refreshRate = display.getRefreshRate();
+            progressIntervalNanos = (long) (1000000000L / (refreshRate > 0 ? refreshRate : 60f));
+            popupView.setWindowInsetsAnimationCallback(new ImeAnimationCallback());
+        } else {
+            popupView.setWindowInsetsAnimationCallback(null);
+        }
+    }
+
+    // Last known normalized keyboard height of current IME and orientation, 0 if never seen
+    // Uses the cached IME package, so it stays cheap on every focus
+    public float getPredictedHeight() {
+        return preferences.getFloat(getPreferenceKey(getScreenOrientation()), 0);
+    }
+
+    // Configuration changes (locale, keyboard, orientation) may come with another IME
+    public void onConfigurationChanged() {
+        updateImePackage();
+    }
+
+    // Package of the selected IME ("com.example.ime/.Service" -> "com.example.ime")
+    // Settings.Secure is a binder read, only done on creation, configuration change and when a height is measured
+    private void updateImePackage() {
+        String ime = Settings.Secure.getString(activity.getContentResolver(), Settings.Secure.DEFAULT_INPUT_METHOD);
+        if (ime == null) {
+            imePackage = "";
+        } else {
+            int end = ime.indexOf('/');
+            if (end < 0) {
+                end = ime.length();
+            }
+            if (imePackage.length() != end || !ime.startsWith(imePackage)) {
+                imePackage = ime.substring(0, end);
+            }
+        }
+    }
+
+    private String getPreferenceKey(int orientation) {
+        return (orientation == Configuration.ORIENTATION_PORTRAIT ? "portrait:" : "landscape:") + imePackage;
+    }
+
+    // Persist height when it differs from stored one (written asynchronously)
+    // The keyboard on screen may belong to a newly selected IME, so the package is refreshed first
+    private void saveHeight(int orientation, float height) {
+        updateImePackage();
+        String key = getPreferenceKey(orientation);
+        if (Math.abs(preferences.getFloat(key, 0) - height) > 0.001f) {
+            preferences.edit().putFloat(key, height).apply();
+        }
+    }
+
     // Return screen orientation
     private int getScreenOrientation() {
         return activity.getResources().getConfiguration().orientation;
     }
 
-    // Handler to get keyboard height
+    // Handler to get keyboard height from IME insets (API 30+)
+    @TargetApi(Build.VERSION_CODES.R)
+    private void handleOnApplyWindowInsets(WindowInsets insets) {
+        Metrics.count(Metrics.KEYBOARD_LAYOUTS);
+        updateKeyboardHeight(getImeHeight(insets), getScreenHeight(insets));
+    }
+
+    // IME height above navigation bar
+    @TargetApi(Build.VERSION_CODES.R)
+    private int getImeHeight(WindowInsets insets) {
+        int imeBottom = insets.getInsets(WindowInsets.Type.ime()).bottom;
+        int navigationBottom = insets.getInsets(WindowInsets.Type.navigationBars()).bottom;
+        return Math.max(0, imeBottom - navigationBottom);
+    }
+
+    @TargetApi(Build.VERSION_CODES.R)
+    private int getScreenHeight(WindowInsets insets) {
+        int navigationBottom = insets.getInsets(WindowInsets.Type.navigationBars()).bottom;
+        return activity.getWindow().getDecorView().getHeight() - navigationBottom;
+    }
+
+    // Handler to get keyboard height from popup visible frame (fallback)
     private void handleOnGlobalLayout() {
-        Point screenSize = new Point();
-        activity.getWindowManager().getDefaultDisplay().getSize(screenSize);
-        Rect rect = new Rect();
-        popupView.getWindowVisibleDisplayFrame(rect);
+        Metrics.count(Metrics.KEYBOARD_LAYOUTS);
+        display.getSize(screenSize);
+        popupView.getWindowVisibleDisplayFrame(visibleFrame);
+        updateKeyboardHeight(screenSize.y - visibleFrame.bottom, screenSize.y);
+    }
+
+    // Keep height per orientation and notify observer when it changed
+    private void updateKeyboardHeight(int keyboardHeight, int screenHeight) {
         int orientation = getScreenOrientation();
-        int keyboardHeight = screenSize.y - rect.bottom;
-        float height = keyboardHeight / (float) screenSize.y;
-        if (keyboardHeight == 0) {
+        if (keyboardHeight == lastKeyboardHeight && orientation == lastOrientation) {
+            return;
+        }
+        lastKeyboardHeight = keyboardHeight;
+        lastOrientation = orientation;
+        float height = screenHeight > 0 ? keyboardHeight / (float) screenHeight : 0;
+        if (keyboardHeight <= 0) {
             notifyKeyboardHeight(0, 0, orientation);
         } else if (orientation == Configuration.ORIENTATION_PORTRAIT) {
             this.keyboardPortraitHeight = keyboardHeight;
+            saveHeight(orientation, height);
             notifyKeyboardHeight(height, keyboardPortraitHeight, orientation);
         } else {
             this.keyboardLandscapeHeight = keyboardHeight;
+            saveHeight(orientation, height);
             notifyKeyboardHeight(height, keyboardLandscapeHeight, orientation);
         }
     }
@@ -87,4 +218,63 @@ public class KeyboardProvider extends PopupWindow {
             observer.onKeyboardHeight(height, keyboardHeight, orientation);
         }
     }
+
+    // Send animation frame to observer
+    @TargetApi(Build.VERSION_CODES.R)
+    private void notifyKeyboardProgress(WindowInsets insets, float fraction, boolean isShow) {
+        if (observer != null) {
+            int keyboardHeight = getImeHeight(insets);
+            int screenHeight = getScreenHeight(insets);
+            float height = screenHeight > 0 ? keyboardHeight / (float) screenHeight : 0;
+            observer.onKeyboardProgress(height, keyboardHeight, fraction, isShow);
+        }
+    }
+
+    // Follow IME show/hide animation frame by frame
+    @TargetApi(Build.VERSION_CODES.R)
+    private class ImeAnimationCallback extends WindowInsetsAnimation.Callback {
+
+        private WindowInsetsAnimation imeAnimation;
+        private boolean isShow;
+
+        ImeAnimationCallback() {
+            super(DISPATCH_MODE_STOP);
+        }
+
+        @Override
+        public WindowInsetsAnimation.Bounds onStart(WindowInsetsAnimation animation, WindowInsetsAnimation.Bounds bounds) {
+            if ((animation.getTypeMask() & WindowInsets.Type.ime()) != 0) {
+                // Root insets already hold the end state when animation starts
+                WindowInsets insets = popupView.getRootWindowInsets();
+                imeAnimation = animation;
+                isShow = insets != null && insets.isVisible(WindowInsets.Type.ime());
+                lastProgressNanos = 0;
+            }
+            return bounds;
+        }
+
+        @Override
+        public WindowInsets onProgress(WindowInsets insets, List<WindowInsetsAnimation> runningAnimations) {
+            if (imeAnimation != null) {
+                long now = System.nanoTime();
+                // Tolerate vsync jitter, otherwise every other frame would be dropped
+                if (now - lastProgressNanos >= progressIntervalNanos * 3 / 4) {
+                    lastProgressNanos = now;
+                    notifyKeyboardProgress(insets, imeAnimation.getInterpolatedFraction(), isShow);
+                }
+            }
+            return insets;
+        }
+
+        @Override
+        public void onEnd(WindowInsetsAnimation animation) {
+            if (animation == imeAnimation) {
+                imeAnimation = null;
+                WindowInsets insets = popupView.getRootWindowInsets();
+                if (insets != null) {
+                    notifyKeyboardProgress(insets, 1f, isShow);
+                }
+            }
+        }
+    }
 }
@@ -1,18 +1,16 @@
 package kyub.uicommons.mobileinput;
 
 import android.content.res.AssetManager;
-import android.graphics.Color;
 import android.graphics.Rect;
 import android.graphics.Typeface;
 import android.os.Build;
 import android.text.Editable;
-import android.text.InputType;
 import android.text.TextWatcher;
 import android.util.Log;
 import android.util.SparseArray;
 import android.util.TypedValue;
+import android.view.Choreographer;
 import android.view.DragEvent;
-import android.view.Gravity;
 import android.view.KeyEvent;
 import android.view.View;
 import android.view.inputmethod.EditorInfo;
@@ -21,12 +19,18 @@ import android.widget.EditText;
 import android.widget.RelativeLayout;
 import android.widget.RelativeLayout.LayoutParams;
 import android.widget.TextView;
+import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
+import kyub.uicommons.common.FrameReader;
+import kyub.uicommons.common.Message;
+import kyub.uicommons.common.Metrics;
+import kyub.uicommons.common.Tracer;
 
 import android.app.Activity;
 import com.unity3d.player.UnityPlayer;
 import java.io.IOException;
+import java.util.ArrayList;
 
 public class MobileInput {
 
@@ -44,12 +48,79 @@ public class MobileInput {
     private static final String RETURN_PRESSED = "RETURN_PRESSED";
     private static final String KEYBOARD_PREPARE = "KEYBOARD_PREPARE";
     private static final String READY = "READY";
+    private static final String TEXT_DELTA = "TEXT_DELTA";
+
+    // Outbound message kinds used by the framed protocol
+    private static final int READY_KIND = 2;
+    private static final int ON_FOCUS_KIND = 3;
+    private static final int ON_UNFOCUS_KIND = 4;
+    private static final int TEXT_CHANGE_KIND = 5;
+    private static final int TEXT_END_EDIT_KIND = 6;
+    private static final int RETURN_PRESSED_KIND = 7;
+    private static final int KEYBOARD_PREPARE_KIND = 8;
+    private static final int TEXT_DELTA_KIND = 9;
+
+    // Full TEXT_CHANGE sent every N deltas so Unity can verify its copy of the text
+    private static final int TEXT_CHECKPOINT_INTERVAL = 32;
+
     private EditText edit;
+    private TextWatcher textWatcher;
+    private boolean isMultiline;
+    private boolean isPassword;
     private int id;
     private final RelativeLayout layout;
     private int characterLimit;
+    private boolean isTextDelta;
+    private boolean isApplyingLimit;
+    private int textSequence;
+    private int deltaStart;
+    private int deltaBefore;
+    private int deltaCount;
+    private String pendingFontKey;
+    // SET_RECT decode target, reused for every command
+    private final InputRect decodedRect = new InputRect();
     private static SparseArray<MobileInput> mobileInputList = null;
 
+    // Max time Create waits for a font still being prewarmed, face is applied once loaded otherwise
+    static volatile long fontWaitTimeoutMillis = 50;
+    private static final FrameReader descriptorReader = new FrameReader();
+
+    // Id of the input holding focus, kept by the focus listener
+    static final int NO_FOCUS = Integer.MIN_VALUE;
+    private static int focusedInputId = NO_FOCUS;
+    private final Runnable hideKeyboardIfUnfocused = new Runnable() {
+        public void run() {
+            if (focusedInputId == NO_FOCUS) {
+                showKeyboard(false);
+            }
+        }
+    };
+
+    // Last rect applied to EditText and latest rect received from Unity
+    private int appliedLeft, appliedTop, appliedWidth, appliedHeight, appliedOffset;
+    private int pendingLeft, pendingTop, pendingWidth, pendingHeight, pendingOffset;
+    private boolean isRectPending;
+
+    // Margins used in last layout, position changes are applied as translation from them
+    private boolean isTranslatePosition;
+    private int layoutLeft, layoutTop;
+
+    // Inputs with pending rect, applied together at next vsync so layout runs once
+    private static final ArrayList<MobileInput> pendingRectInputs = new ArrayList<>();
+    private static boolean isRectPassScheduled = false;
+    private static final Choreographer.FrameCallback rectPass = new Choreographer.FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            isRectPassScheduled = false;
+            boolean isTraced = Tracer.begin("MobileInput.rectPass");
+            for (int i = 0; i < pendingRectInputs.size(); i++) {
+                pendingRectInputs.get(i).applyPendingRect();
+            }
+            pendingRectInputs.clear();
+            Tracer.end(isTraced);
+        }
+    };
+
     // Constructor
     private MobileInput(RelativeLayout parentLayout) {
         layout = parentLayout;
@@ -72,11 +143,54 @@ public class MobileInput {
 
     // Handler to process all messages for MobileInput
     public static void processMessage(int id, final String data) {
+        boolean isTraced = Tracer.begin("MobileInput.processMessage");
+        long start = Metrics.start();
+        try {
+            if (CreateOptions.isDescriptor(data)) {
+                Metrics.count(Metrics.MESSAGES_IN);
+                processCreate(id, CreateOptions.fromDescriptor(descriptorReader, data));
+            } else {
+                processMessage(id, new JSONObject(data));
+            }
+        } catch (JSONException | IllegalArgumentException e) {
+            Plugin.common.sendError(Plugin.name, "RECEIVE_ERROR", e.getMessage());
+        }
+        Metrics.record(Metrics.PROCESS_MESSAGE, start);
+        Tracer.end(isTraced);
+    }
+
+    // Handler to process many commands parsed from one payload: [{"id": 1, "data": {...}}, ...]
+    public static void processBatch(final String data) {
+        JSONArray batch;
+        try {
+            batch = new JSONArray(data);
+        } catch (JSONException e) {
+            Plugin.common.sendError(Plugin.name, "RECEIVE_ERROR", e.getMessage());
+            return;
+        }
+        for (int i = 0; i < batch.length(); i++) {
+            try {
+                JSONObject command = batch.getJSONObject(i);
+                int id = command.getInt("id");
+                Object commandData = command.get("data");
+                if (commandData instanceof JSONObject) {
+                    processMessage(id, (JSONObject) commandData);
+                } else {
+                    processMessage(id, commandData.toString());
+                }
+            } catch (JSONException e) {
+                Plugin.common.sendError(Plugin.name, "RECEIVE_ERROR", e.getMessage());
+            }
+        }
+    }
+
+    // Handler to process one parsed command
+    private static void processMessage(int id, JSONObject json) {
         if (mobileInputList == null) {
             mobileInputList = new SparseArray<>();
         }
+        Metrics.count(Metrics.MESSAGES_IN);
         try {
-            JSONObject json = new JSONObject(data);
             String msg = json.getString("msg");
             if (msg.equals(CREATE)) {
                 MobileInput input = new MobileInput(Plugin.layout);
@@ -86,6 +200,8 @@ public class MobileInput {
                 MobileInput input = mobileInputList.get(id);
                 if (input != null) {
                     input.processData(json);
+                } else {
+                    Metrics.count(Metrics.DROPPED);
                 }
             }
         } catch (JSONException e) {
@@ -93,6 +209,16 @@ public class MobileInput {
         }
     }
 
+    // Create MobileInput from a decoded descriptor
+    private static void processCreate(int id, CreateOptions options) {
+        if (mobileInputList == null) {
+            mobileInputList = new SparseArray<>();
+        }
+        MobileInput input = new MobileInput(Plugin.layout);
+        input.Create(id, options);
+        mobileInputList.append(id, input);
+    }
+
     // Process command for MobileInput
     private void processData(JSONObject data) {
         try {
@@ -127,44 +253,45 @@ public class MobileInput {
         }
     }
 
-    // Create new MobileInput
+    // Create new MobileInput from legacy JSON command
     private void Create(int id, JSONObject data) {
         this.id = id;
         try {
-            String placeHolder = data.getString("placeholder");
-            String font = data.getString("font");
-            double fontSize = data.getDouble("font_size");
-            double x = data.getDouble("x") * (double) layout.getWidth();
-            double y = data.getDouble("y") * (double) layout.getHeight();
-            double width = data.getDouble("width") * (double) layout.getWidth();
-            double height = data.getDouble("height") * (double) layout.getHeight();
+            Create(id, CreateOptions.fromJson(data));
+        } catch (Exception e) {
+            Plugin.common.sendError(Plugin.name, "CREATE_ERROR", e.getMessage());
+        }
+    }
+
+    // Create new MobileInput
+    private void Create(int id, CreateOptions options) {
+        this.id = id;
+        boolean isTraced = Tracer.begin("MobileInput.Create");
+        long start = Metrics.start();
+        try {
+            String placeHolder = options.placeholder;
+            String font = options.font;
+            double x = options.rect[0] * (double) layout.getWidth();
+            double y = options.rect[1] * (double) layout.getHeight();
+            double width = options.rect[2] * (double) layout.getWidth();
+            double height = options.rect[3] * (double) layout.getHeight();
 
             //Used as reference to Pan LeafView
-            double pan_x = data.getDouble("pan_content_x") * (double) layout.getWidth();
-            double pan_y = data.getDouble("pan_content_y") * (double) layout.getHeight();
-            double pan_width = data.getDouble("pan_content_width") * (double) layout.getWidth();
-            double pan_height = data.getDouble("pan_content_height") * (double) layout.getHeight();
-
-            characterLimit = data.getInt("character_limit");
-            int textColor_r = (int) (255.0f * data.getDouble("text_color_r"));
-            int textColor_g = (int) (255.0f * data.getDouble("text_color_g"));
-            int textColor_b = (int) (255.0f * data.getDouble("text_color_b"));
-            int textColor_a = (int) (255.0f * data.getDouble("text_color_a"));
-            int backColor_r = (int) (255.0f * data.getDouble("back_color_r"));
-            int backColor_g = (int) (255.0f * data.getDouble("back_color_g"));
-            int backColor_b = (int) (255.0f * data.getDouble("back_color_b"));
-            int backColor_a = (int) (255.0f * data.getDouble("back_color_a"));
-            int placeHolderColor_r = (int) (255.0f * data.getDouble("placeholder_color_r"));
-            int placeHolderColor_g = (int) (255.0f * data.getDouble("placeholder_color_g"));
-            int placeHolderColor_b = (int) (255.0f * data.getDouble("placeholder_color_b"));
-            int placeHolderColor_a = (int) (255.0f * data.getDouble("placeholder_color_a"));
-            String contentType = data.getString("content_type");
-            String inputType = data.optString("input_type");
-            String keyboardType = data.optString("keyboard_type");
-            String returnKeyType = data.getString("return_key_type");
-            String alignment = data.getString("align");
-            boolean multiline = data.getBoolean("multiline");
-            edit = new EditText(Plugin.activity.getApplicationContext());
+            double pan_x = options.rect[4] * (double) layout.getWidth();
+            double pan_y = options.rect[5] * (double) layout.getHeight();
+            double pan_width = options.rect[6] * (double) layout.getWidth();
+            double pan_height = options.rect[7] * (double) layout.getHeight();
+
+            characterLimit = options.characterLimit;
+            boolean multiline = options.multiline;
+            isTextDelta = options.textDelta;
+            isTranslatePosition = options.translatePosition;
+            isMultiline = multiline;
+            isPassword = options.isPassword();
+            edit = EditTextPool.obtain(multiline, isPassword);
+            if (edit == null) {
+                edit = new EditText(Plugin.activity.getApplicationContext());
+            }
             edit.setSingleLine(!multiline);
             edit.setId(this.id);
             edit.setText("");
@@ -172,146 +299,25 @@ public class MobileInput {
             Rect rect = new Rect((int) x, (int) y, (int) (x + width), (int) (y + height));
             Rect panRect = new Rect((int) pan_x, (int) pan_y, (int) (pan_x + pan_width), (int) (pan_y + pan_height));
             int offset = panRect.bottom - rect.bottom > 0? panRect.bottom - rect.bottom : 0;
-            boolean isPassword = false;
 
             LayoutParams params = new LayoutParams(rect.width(), rect.height() + offset);
             params.setMargins(rect.left, rect.top, 0, 0);
             edit.setLayoutParams(params);
             edit.setPadding(0, 0, 0, offset);
-            int editInputType = 0;
-            switch (contentType) {
-                case "Standard":
-                    editInputType |= InputType.TYPE_CLASS_TEXT | InputType.TYPE_TEXT_FLAG_CAP_SENTENCES;
-                    break; // This is default behaviour
-                case "Autocorrected":
-                    editInputType |= InputType.TYPE_CLASS_TEXT | InputType.TYPE_TEXT_FLAG_CAP_SENTENCES | InputType.TYPE_TEXT_FLAG_AUTO_CORRECT;
-                    break;
-                case "IntegerNumber":
-                    editInputType |= InputType.TYPE_CLASS_NUMBER;
-                    break;
-                case "DecimalNumber":
-                    editInputType |= InputType.TYPE_CLASS_NUMBER | InputType.TYPE_NUMBER_FLAG_DECIMAL;
-                    break;
-                case "Alphanumeric":
-                    editInputType |= InputType.TYPE_CLASS_TEXT | InputType.TYPE_TEXT_FLAG_CAP_SENTENCES;
-                    break;
-                case "Name":
-                    editInputType |= InputType.TYPE_CLASS_TEXT | InputType.TYPE_TEXT_VARIATION_PERSON_NAME;
-                    break;
-                case "EmailAddress":
-                    editInputType |= InputType.TYPE_CLASS_TEXT | InputType.TYPE_TEXT_VARIATION_EMAIL_ADDRESS;
-                    break;
-                case "Password":
-                    isPassword = true;
-                    editInputType |= InputType.TYPE_CLASS_TEXT | InputType.TYPE_TEXT_VARIATION_PASSWORD;
-                    break;
-                case "Pin":
-                    editInputType |= InputType.TYPE_CLASS_PHONE;
-                    break;
-                case "Custom": // We need more details
-                    switch (keyboardType) {
-                        case "ASCIICapable":
-                            editInputType = InputType.TYPE_CLASS_TEXT | InputType.TYPE_TEXT_FLAG_NO_SUGGESTIONS;
-                            break;
-                        case "NumbersAndPunctuation":
-                            editInputType = InputType.TYPE_CLASS_NUMBER | InputType.TYPE_NUMBER_FLAG_DECIMAL | InputType.TYPE_NUMBER_FLAG_SIGNED;
-                            break;
-                        case "URL":
-                            editInputType = InputType.TYPE_CLASS_TEXT | InputType.TYPE_TEXT_FLAG_NO_SUGGESTIONS | InputType.TYPE_TEXT_VARIATION_URI;
-                            break;
-                        case "NumberPad":
-                            editInputType = InputType.TYPE_CLASS_NUMBER;
-                            break;
-                        case "DecimalPad":
-                            editInputType = InputType.TYPE_CLASS_NUMBER | InputType.TYPE_NUMBER_FLAG_DECIMAL;
-                            break;
-                        case "PhonePad":
-                            editInputType = InputType.TYPE_CLASS_PHONE;
-                            break;
-                        case "NamePhonePad":
-                            editInputType = InputType.TYPE_CLASS_TEXT | InputType.TYPE_TEXT_VARIATION_PERSON_NAME;
-                            break;
-                        case "EmailAddress":
-                            editInputType = InputType.TYPE_CLASS_TEXT | InputType.TYPE_TEXT_VARIATION_EMAIL_ADDRESS;
-                            break;
-                        case "Social":
-                            editInputType = InputType.TYPE_TEXT_VARIATION_URI | InputType.TYPE_TEXT_VARIATION_EMAIL_ADDRESS;
-                            break;
-                        case "Search":
-                            editInputType = InputType.TYPE_CLASS_TEXT | InputType.TYPE_TEXT_VARIATION_EMAIL_ADDRESS | InputType.TYPE_NUMBER_FLAG_DECIMAL | InputType.TYPE_NUMBER_FLAG_SIGNED;;
-                            break;
-                        default:
-                            editInputType = InputType.TYPE_CLASS_TEXT;
-                            break;
-                    }
-                    switch (inputType) {
-                        case "Standard":
-                            break;
-                        case "AutoCorrect":
-                            editInputType |= InputType.TYPE_TEXT_FLAG_AUTO_CORRECT;
-                            break;
-                        case "Password":
-                            isPassword = true;
-                            if (keyboardType != "NumbersAndPunctuation" && keyboardType != "NumberPad" && keyboardType != "PhonePad") {
-                                editInputType |= InputType.TYPE_CLASS_TEXT | InputType.TYPE_TEXT_VARIATION_PASSWORD;
-                            } else {
-                                editInputType |= InputType.TYPE_NUMBER_VARIATION_PASSWORD;
-                            }
-                            break;
-                    }
-                    break;
-                default:
-                    editInputType |= InputType.TYPE_CLASS_TEXT;
-                    break;
-            }
-            if (multiline) {
-                editInputType |= InputType.TYPE_TEXT_FLAG_MULTI_LINE | InputType.TYPE_TEXT_FLAG_CAP_SENTENCES;
-            }
-            edit.setInputType(editInputType);
-            int gravity = 0;
-            switch (alignment) {
-                case "UpperLeft":
-                    gravity = Gravity.TOP | Gravity.LEFT;
-                    break;
-                case "UpperCenter":
-                    gravity = Gravity.TOP | Gravity.CENTER_HORIZONTAL;
-                    break;
-                case "UpperRight":
-                    gravity = Gravity.TOP | Gravity.RIGHT;
-                    break;
-                case "MiddleLeft":
-                    gravity = Gravity.CENTER_VERTICAL | Gravity.LEFT;
-                    break;
-                case "MiddleCenter":
-                    gravity = Gravity.CENTER_VERTICAL | Gravity.CENTER_HORIZONTAL;
-                    break;
-                case "MiddleRight":
-                    gravity = Gravity.CENTER_VERTICAL | Gravity.RIGHT;
-                    break;
-                case "LowerLeft":
-                    gravity = Gravity.BOTTOM | Gravity.LEFT;
-                    break;
-                case "LowerCenter":
-                    gravity = Gravity.BOTTOM | Gravity.CENTER_HORIZONTAL;
-                    break;
-                case "LowerRight":
-                    gravity = Gravity.BOTTOM | Gravity.RIGHT;
-                    break;
-            }
-            int imeOptions = EditorInfo.IME_FLAG_NO_EXTRACT_UI;
-            if (returnKeyType.equals("Next")) {
-                imeOptions |= EditorInfo.IME_ACTION_NEXT;
-            } else if (returnKeyType.equals("Done")) {
-                imeOptions |= EditorInfo.IME_ACTION_DONE;
-            } else if (returnKeyType.equals("Search")) {
-                imeOptions |= EditorInfo.IME_ACTION_SEARCH;
-            }
-            edit.setImeOptions(imeOptions);
-            edit.setGravity(gravity);
-            edit.setTextSize(TypedValue.COMPLEX_UNIT_PX, (float) fontSize);
-            edit.setTextColor(Color.argb(textColor_a, textColor_r, textColor_g, textColor_b));
-            edit.setBackgroundColor(Color.argb(backColor_a, backColor_r, backColor_g, backColor_b));
-            edit.setHintTextColor(Color.argb(placeHolderColor_a, placeHolderColor_r, placeHolderColor_g, placeHolderColor_b));
+            appliedLeft = rect.left;
+            appliedTop = rect.top;
+            appliedWidth = rect.width();
+            appliedHeight = rect.height();
+            appliedOffset = offset;
+            layoutLeft = rect.left;
+            layoutTop = rect.top;
+            edit.setInputType(options.getEditInputType());
+            edit.setImeOptions(options.getImeOptions());
+            edit.setGravity(options.getGravity());
+            edit.setTextSize(TypedValue.COMPLEX_UNIT_PX, options.fontSize);
+            edit.setTextColor(options.textColor);
+            edit.setBackgroundColor(options.backColor);
+            edit.setHintTextColor(options.placeholderColor);
             edit.setIncludeFontPadding(false);
             if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
                 edit.setLetterSpacing(0.0115f);
@@ -323,7 +329,12 @@ public class MobileInput {
                 //Try Create From File
                 try {
                     String assetPath = "res/font/" + font;
-                    tf = TypefaceCache.GetOrCreate(Plugin.activity.getApplicationContext(), assetPath);
+                    // Registered before waiting, a prewarm finishing after the timeout still applies its face
+                    pendingFontKey = TypefaceCache.GetCacheKey(assetPath);
+                    tf = TypefaceCache.GetOrCreate(Plugin.activity.getApplicationContext(), assetPath, fontWaitTimeoutMillis);
+                    if (tf != null) {
+                        pendingFontKey = null;
+                    }
                 } catch (Exception e) {
                     tf = null;
                 }
@@ -340,43 +351,49 @@ public class MobileInput {
             edit.setOnFocusChangeListener(new View.OnFocusChangeListener() {
                 @Override
                 public void onFocusChange(View v, boolean isFocus) {
+                    if (isFocus) {
+                        focusedInputId = input.id;
+                    } else if (focusedInputId == input.id) {
+                        focusedInputId = NO_FOCUS;
+                    }
                     try {
                         if (!isFocus) {
-                            JSONObject data = new JSONObject();
-                            try {
-                                data.put("msg", TEXT_END_EDIT);
-                                data.put("text", input.GetText());
-                            } catch (JSONException e) {
-                            }
-                            sendData(data);
+                            sendData(createMessage(TEXT_END_EDIT_KIND, TEXT_END_EDIT)
+                                    .putText("text", input.GetText()));
                         }
                         SetFocus(isFocus);
-                        JSONObject data = new JSONObject();
-                        try {
-                            data.put("msg", (isFocus) ? ON_FOCUS : ON_UNFOCUS);
-                        } catch (JSONException e) {
-                        }
-                        sendData(data);
+                        sendData((isFocus) ? createMessage(ON_FOCUS_KIND, ON_FOCUS) : createMessage(ON_UNFOCUS_KIND, ON_UNFOCUS));
                     }
                     catch (Exception e){
                     }
                 }
             });
-            edit.addTextChangedListener(new TextWatcher() {
+            textWatcher = new TextWatcher() {
                 public void afterTextChanged(Editable s) {
+                    // Changes made below while enforcing the limit are reported by the outer call
+                    if (isApplyingLimit) {
+                        return;
+                    }
                     try {
-                        JSONObject data = new JSONObject();
+                        boolean isTruncated = false;
                         if (characterLimit > 0 && s.length() >= characterLimit + 1) {
-                            s.delete(s.length() - 1, s.length());
-                            edit.setText(s);
-                            edit.setSelection(s.length());
+                            isApplyingLimit = true;
+                            try {
+                                s.delete(s.length() - 1, s.length());
+                                edit.setText(s);
+                                edit.setSelection(s.length());
+                            } finally {
+                                isApplyingLimit = false;
+                            }
+                            isTruncated = true;
                         }
-                        try {
-                            data.put("msg", TEXT_CHANGE);
-                            data.put("text", s.toString());
-                        } catch (JSONException e) {
+                        if (isTextDelta) {
+                            sendTextDelta(s, isTruncated);
+                        } else {
+                            sendData(createMessage(TEXT_CHANGE_KIND, TEXT_CHANGE)
+                                    .putText("text", s.toString())
+                                    .setCoalescable(true));
                         }
-                        sendData(data);
                     }
                     catch (Exception e) {
                     }
@@ -390,19 +407,18 @@ public class MobileInput {
 
                 @Override
                 public void onTextChanged(CharSequence s, int start, int before, int count) {
-                    // TODO Auto-generated method stub
+                    // Keep replaced range for TEXT_DELTA
+                    deltaStart = start;
+                    deltaBefore = before;
+                    deltaCount = count;
                 }
-            });
+            };
+            edit.addTextChangedListener(textWatcher);
             edit.setOnEditorActionListener(new TextView.OnEditorActionListener() {
                 @Override
                 public boolean onEditorAction(TextView v, int actionId, KeyEvent event) {
                     if ((actionId == EditorInfo.IME_ACTION_DONE) || (actionId == EditorInfo.IME_ACTION_NEXT) || (actionId == EditorInfo.IME_ACTION_SEARCH)) {
-                        JSONObject data = new JSONObject();
-                        try {
-                            data.put("msg", RETURN_PRESSED);
-                        } catch (JSONException e) {
-                        }
-                        sendData(data);
+                        Plugin.common.sendImmediate(createMessage(RETURN_PRESSED_KIND, RETURN_PRESSED));
                         return true;
                     }
                     return false;
@@ -423,20 +439,41 @@ public class MobileInput {
             });*/
 
             layout.addView(edit);
-            data = new JSONObject();
-            try {
-                data.put("msg", READY);
-            } catch (JSONException e) {}
-            sendData(data);
+            sendData(createMessage(READY_KIND, READY));
         } catch (Exception e) {
             Plugin.common.sendError(Plugin.name, "CREATE_ERROR", e.getMessage());
         }
+        Metrics.record(Metrics.CREATE, start);
+        Tracer.end(isTraced);
+    }
+
+    // Send only replaced range and inserted text, or a full checkpoint when due
+    private void sendTextDelta(Editable s, boolean isFullText) {
+        textSequence++;
+        int end = deltaStart + deltaCount;
+        if (isFullText || textSequence % TEXT_CHECKPOINT_INTERVAL == 0 || deltaStart < 0 || end > s.length()) {
+            sendData(createMessage(TEXT_CHANGE_KIND, TEXT_CHANGE)
+                    .putText("text", s.toString())
+                    .putInt("seq", textSequence));
+        } else {
+            sendData(createMessage(TEXT_DELTA_KIND, TEXT_DELTA)
+                    .putInt("start", deltaStart)
+                    .putInt("before", deltaBefore)
+                    .putText("text", s.subSequence(deltaStart, end).toString())
+                    .putInt("length", s.length())
+                    .putInt("seq", textSequence));
+        }
     }
 
     // Remove MobileInput
     private void Remove() {
+        if (focusedInputId == id) {
+            focusedInputId = NO_FOCUS;
+        }
         if (edit != null) {
             layout.removeView(edit);
+            edit.removeTextChangedListener(textWatcher);
+            EditTextPool.recycle(edit, isMultiline, isPassword);
         }
         edit = null;
     }
@@ -505,57 +542,92 @@ public class MobileInput {
             }
             if (isFocus) {
                 edit.requestFocus();
+                this.showKeyboard(true);
             } else {
                 edit.clearFocus();
+                // Focus moving to another input gains it after this one loses it, so decide on next loop
+                layout.removeCallbacks(hideKeyboardIfUnfocused);
+                layout.post(hideKeyboardIfUnfocused);
             }
-            if (!isFocus) {
-                for (int i = 0; i < mobileInputList.size(); i++) {
-                    int key = mobileInputList.keyAt(i);
-                    MobileInput input = mobileInputList.get(key);
-                    if (input.isFocused()) {
-                        return;
-                    }
-                }
-            }
-            this.showKeyboard(isFocus);
         }
         catch (Exception e) {
         }
     }
 
-    // Set new position and size
+    // Id of the focused MobileInput or NO_FOCUS
+    public static int getFocusedId() {
+        return focusedInputId;
+    }
+
+    // Set new position and size, applied on next frame
     private void SetRect(JSONObject data) {
+        long start = Metrics.start();
         try {
-            double x = data.getDouble("x") * (double) layout.getWidth();
-            double y = data.getDouble("y") * (double) layout.getHeight();
-            double width = data.getDouble("width") * (double) layout.getWidth();
-            double height = data.getDouble("height") * (double) layout.getHeight();
-
-            //Used as reference to Pan LeafView
-            double pan_x = data.getDouble("pan_content_x") * (double) layout.getWidth();
-            double pan_y = data.getDouble("pan_content_y") * (double) layout.getHeight();
-            double pan_width = data.getDouble("pan_content_width") * (double) layout.getWidth();
-            double pan_height = data.getDouble("pan_content_height") * (double) layout.getHeight();
+            decodedRect.decode(data, layout.getWidth(), layout.getHeight());
+            setPendingRect(decodedRect.left, decodedRect.top, decodedRect.width, decodedRect.height, decodedRect.offset);
+        } catch (Exception e) {}
+        Metrics.record(Metrics.SET_RECT, start);
+    }
 
-            Rect rect = new Rect((int) x, (int) y, (int) (x + width), (int) (y + height));
-            Rect panRect = new Rect((int) pan_x, (int) pan_y, (int) (pan_x + pan_width), (int) (pan_y + pan_height));
-            final int offset = panRect.bottom - rect.bottom > 0? panRect.bottom - rect.bottom : 0;
+    // Keep latest rect and queue it for the next rect pass, unchanged rects are skipped
+    private void setPendingRect(int left, int top, int width, int height, int offset) {
+        if (!isRectPending && left == appliedLeft && top == appliedTop && width == appliedWidth
+                && height == appliedHeight && offset == appliedOffset) {
+            Metrics.count(Metrics.DROPPED);
+            return;
+        }
+        if (isRectPending) {
+            Metrics.count(Metrics.COALESCED);
+        }
+        pendingLeft = left;
+        pendingTop = top;
+        pendingWidth = width;
+        pendingHeight = height;
+        pendingOffset = offset;
+        if (!isRectPending) {
+            isRectPending = true;
+            pendingRectInputs.add(this);
+            if (!isRectPassScheduled) {
+                isRectPassScheduled = true;
+                Choreographer.getInstance().postFrameCallback(rectPass);
+            }
+        }
+    }
 
-            final LayoutParams params = new LayoutParams(rect.width(), rect.height() + offset);
-            params.setMargins(rect.left, rect.top, 0, 0);
+    // Apply pending rect, reusing current LayoutParams
+    // In translate position mode a pure move only updates translation, so no layout pass is requested
+    private void applyPendingRect() {
+        isRectPending = false;
+        if (edit == null || (pendingLeft == appliedLeft && pendingTop == appliedTop && pendingWidth == appliedWidth
+                && pendingHeight == appliedHeight && pendingOffset == appliedOffset)) {
+            return;
+        }
+        boolean isSizeChanged = pendingWidth != appliedWidth || pendingHeight != appliedHeight || pendingOffset != appliedOffset;
+        if (isTranslatePosition && !isSizeChanged) {
+            edit.setTranslationX(pendingLeft - layoutLeft);
+            edit.setTranslationY(pendingTop - layoutTop);
+        } else {
+            LayoutParams params = (LayoutParams) edit.getLayoutParams();
+            params.width = pendingWidth;
+            params.height = pendingHeight + pendingOffset;
+            params.leftMargin = pendingLeft;
+            params.topMargin = pendingTop;
             edit.setLayoutParams(params);
-            edit.setPadding(0, 0, 0, offset);
-
-            //Fix crash when SetRect is applied outside main thread
-            final Activity a = UnityPlayer.currentActivity;
-            a.runOnUiThread(new Runnable() {public void run() {
-                if (edit == null) {
-                    return;
-                }
-                edit.setLayoutParams(params);
-                edit.setPadding(0, 0, 0, offset);
-            }});
-        } catch (Exception e) {}
+            if (pendingOffset != appliedOffset) {
+                edit.setPadding(0, 0, 0, pendingOffset);
+            }
+            layoutLeft = pendingLeft;
+            layoutTop = pendingTop;
+            if (isTranslatePosition) {
+                edit.setTranslationX(0);
+                edit.setTranslationY(0);
+            }
+        }
+        appliedLeft = pendingLeft;
+        appliedTop = pendingTop;
+        appliedWidth = pendingWidth;
+        appliedHeight = pendingHeight;
+        appliedOffset = pendingOffset;
     }
 
     // Set visible to MobileEdit
@@ -609,27 +681,42 @@ public class MobileInput {
         InputMethodManager imm = (InputMethodManager) Plugin.activity.getSystemService(Plugin.activity.INPUT_METHOD_SERVICE);
         View rootView = Plugin.activity.getWindow().getDecorView();
         if (isShow) {
-            final MobileInput input = this;
-            JSONObject data = new JSONObject();
-            try {
-                data.put("msg", KEYBOARD_PREPARE);
-            }
-            catch(JSONException e) {}
-            sendData(data);
+            sendData(createMessage(KEYBOARD_PREPARE_KIND, KEYBOARD_PREPARE)
+                    .putFloat("height", Plugin.getPredictedKeyboardHeight()));
             imm.showSoftInput(edit, InputMethodManager.SHOW_FORCED);
         } else {
-            edit.clearFocus();
+            // Input may already be removed when the deferred hide runs
+            if (edit != null) {
+                edit.clearFocus();
+            }
             rootView.clearFocus();
-            imm.hideSoftInputFromWindow(edit.getWindowToken(), 0);
+            imm.hideSoftInputFromWindow(edit != null && edit.getWindowToken() != null ? edit.getWindowToken() : rootView.getWindowToken(), 0);
         }
     }
 
-    // Wrapper to send data to Unity app
-    private void sendData(JSONObject data) {
-        try {
-            data.put("id", this.id);
+    // Apply prewarmed face to inputs created while it was still loading (UI thread)
+    static void onTypefaceLoaded(String cacheKey, Typeface font) {
+        if (mobileInputList == null) {
+            return;
+        }
+        for (int i = 0; i < mobileInputList.size(); i++) {
+            MobileInput input = mobileInputList.valueAt(i);
+            if (input.edit != null && cacheKey.equals(input.pendingFontKey)) {
+                input.pendingFontKey = null;
+                if (font != null) {
+                    input.edit.setTypeface(font);
+                }
+            }
         }
-        catch(JSONException e) {}
-        Plugin.common.sendData(Plugin.name, data.toString());
+    }
+
+    // Create message for this MobileInput
+    private Message createMessage(int kind, String msg) {
+        return Message.obtain(Plugin.name, kind, msg).setId(this.id);
+    }
+
+    // Wrapper to send data to Unity app (batched per frame when coalescing is enabled)
+    private void sendData(Message data) {
+        Plugin.common.send(data);
     }
 }
\ No newline at end of file
@@ -1,12 +1,28 @@
 package kyub.uicommons.mobileinput;
 
 import android.app.Activity;
+import android.content.ComponentCallbacks2;
+import android.content.res.Configuration;
+import android.graphics.Typeface;
+import android.util.Log;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.RelativeLayout;
 import android.widget.RelativeLayout.LayoutParams;
 import kyub.uicommons.common.Common;
+import kyub.uicommons.common.Message;
+import kyub.uicommons.common.Metrics;
+import kyub.uicommons.common.SessionRecorder;
+import kyub.uicommons.common.Tracer;
 import com.unity3d.player.UnityPlayer;
+import org.json.JSONArray;
+import org.json.JSONException;
+
+import java.io.File;
+import java.io.IOException;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 
 public class Plugin {
@@ -14,12 +30,101 @@ public class Plugin {
     public static String name = "mobileinput";
 
     public static String KEYBOARD_ACTION = "KEYBOARD_ACTION";
+    public static int KEYBOARD_ACTION_KIND = 1;
+    public static String KEYBOARD_PROGRESS = "KEYBOARD_PROGRESS";
+    public static int KEYBOARD_PROGRESS_KIND = 10;
+    public static String FONTS_READY = "FONTS_READY";
+    public static int FONTS_READY_KIND = 11;
+    public static String PREWARM_ERROR = "PREWARM_ERROR";
     public static Activity activity;
     public static RelativeLayout layout;
     public static Common common;
     private static ViewGroup group;
     private static KeyboardProvider keyboardProvider;
     private static KeyboardListener keyboardListener;
+    private static volatile boolean isKeyboardProgress = false;
+
+    // Release pooled EditTexts when system asks for memory
+    private static final ComponentCallbacks2 memoryCallbacks = new ComponentCallbacks2() {
+        @Override
+        public void onTrimMemory(final int level) {
+            EditTextPool.onTrimMemory(level);
+        }
+
+        @Override
+        public void onLowMemory() {
+            EditTextPool.clear();
+        }
+
+        @Override
+        public void onConfigurationChanged(Configuration newConfig) {
+            if (keyboardProvider != null) {
+                keyboardProvider.onConfigurationChanged();
+            }
+        }
+    };
+
+    // Apply prewarmed fonts to waiting inputs and report completion
+    // Results are only delivered once init() created the plugin, inputs do not exist before that
+    private static final TypefaceCache.PrewarmListener fontPrewarmListener = new TypefaceCache.PrewarmListener() {
+        @Override
+        public void onTypefaceLoaded(final String cacheKey, final Typeface font) {
+            if (activity == null) {
+                return;
+            }
+            activity.runOnUiThread(new Runnable() {
+                public void run() {
+                    MobileInput.onTypefaceLoaded(cacheKey, font);
+                }
+            });
+        }
+
+        @Override
+        public void onPrewarmFinished(int loaded, int failed) {
+            if (common == null) {
+                return;
+            }
+            common.send(Message.obtain(name, FONTS_READY_KIND, FONTS_READY)
+                    .putInt("loaded", loaded)
+                    .putInt("failed", failed));
+        }
+    };
+
+    // Commands from Unity thread waiting for the UI thread (lock-free, multi-producer)
+    private static final ConcurrentLinkedQueue<Command> commands = new ConcurrentLinkedQueue<>();
+    private static final AtomicBoolean isDrainScheduled = new AtomicBoolean(false);
+    private static final int BATCH_ID = Integer.MIN_VALUE;
+
+    private static final class Command {
+        final int id;
+        final String data;
+        final long enqueueTime;
+
+        Command(int id, String data) {
+            this.id = id;
+            this.data = data;
+            this.enqueueTime = Metrics.start();
+        }
+    }
+
+    // Apply every queued command in one UI thread hop
+    private static final Runnable drainCommands = new Runnable() {
+        public void run() {
+            isDrainScheduled.set(false);
+            Metrics.count(Metrics.UI_HOPS);
+            boolean isTraced = Tracer.begin("MobileInput.drainCommands");
+            Command command;
+            while ((command = commands.poll()) != null) {
+                Metrics.record(Metrics.QUEUE_WAIT, command.enqueueTime);
+                if (command.id == BATCH_ID) {
+                    MobileInput.processBatch(command.data);
+                } else {
+                    MobileInput.processMessage(command.id, command.data);
+                }
+            }
+            Tracer.end(isTraced);
+        }
+    };
 
     // Get view recursive
     private static View getLeafView(View view) {
@@ -55,6 +160,9 @@ public class Plugin {
                 group.addView(layout, params);
                 keyboardListener = new KeyboardListener();
                 keyboardProvider = new KeyboardProvider(activity, group, keyboardListener);
+                keyboardProvider.setProgressEnabled(isKeyboardProgress);
+                activity.getApplicationContext().unregisterComponentCallbacks(memoryCallbacks);
+                activity.getApplicationContext().registerComponentCallbacks(memoryCallbacks);
 
                 /*rootView.setOnSystemUiVisibilityChangeListener
                         (new View.OnSystemUiVisibilityChangeListener() {
@@ -80,6 +188,8 @@ public class Plugin {
                 keyboardProvider.disable();
                 keyboardProvider = null;
                 keyboardListener = null;
+                activity.getApplicationContext().unregisterComponentCallbacks(memoryCallbacks);
+                EditTextPool.clear();
                 if (layout != null) {
                     group.removeView(layout);
                 }
@@ -89,13 +199,136 @@ public class Plugin {
 
     // Send data to MobileInput
     public static void execute(final int id, final String data) {
+        SessionRecorder.recordInbound(id, data);
+        enqueue(new Command(id, data));
+    }
+
+    // Send many commands to MobileInput in one call: [{"id": 1, "data": {...}}, ...]
+    public static void executeBatch(final String data) {
+        SessionRecorder.recordInboundBatch(data);
+        enqueue(new Command(BATCH_ID, data));
+    }
+
+    // Queue command and schedule a drain unless one is already pending
+    private static void enqueue(Command command) {
+        commands.offer(command);
+        if (isDrainScheduled.compareAndSet(false, true)) {
+            activity.runOnUiThread(drainCommands);
+        }
+    }
+
+    // Select envelope for outgoing data (Common.PROTOCOL_JSON or Common.PROTOCOL_FRAMED)
+    public static void setProtocol(int protocol) {
+        Common.setProtocol(protocol);
+    }
+
+    // Batch outgoing data once per frame, TEXT_CHANGE events of same input are collapsed
+    public static void setCoalescing(boolean isCoalescing) {
+        Common.setCoalescing(isCoalescing);
+    }
+
+    // Send pending outgoing data right now
+    public static void flush() {
+        Common.flush();
+    }
+
+    // Max pooled EditTexts kept for each multiline/password configuration
+    public static void setEditTextPoolSize(final int size) {
+        activity.runOnUiThread(new Runnable() {
+            public void run() {
+                EditTextPool.setMaxPerKey(size);
+            }
+        });
+    }
+
+    // Stream KEYBOARD_PROGRESS frames while keyboard animates (Android 11+), KEYBOARD_ACTION is still sent
+    public static void setKeyboardProgress(final boolean isEnabled) {
+        isKeyboardProgress = isEnabled;
+        if (activity == null) {
+            return;
+        }
         activity.runOnUiThread(new Runnable() {
             public void run() {
-                MobileInput.processMessage(id, data);
+                if (keyboardProvider != null) {
+                    keyboardProvider.setProgressEnabled(isEnabled);
+                }
             }
         });
     }
 
+    // Load fonts in background, e.g. ["res/font/Lato-Regular.ttf"], FONTS_READY is sent when done
+    public static void prewarmFonts(final String data) {
+        Activity context = activity != null ? activity : UnityPlayer.currentActivity;
+        try {
+            JSONArray paths = new JSONArray(data);
+            String[] assetPaths = new String[paths.length()];
+            for (int i = 0; i < assetPaths.length; i++) {
+                assetPaths[i] = paths.getString(i);
+            }
+            TypefaceCache.Prewarm(context, assetPaths, fontPrewarmListener);
+        } catch (JSONException e) {
+            if (common != null) {
+                common.sendError(name, PREWARM_ERROR, e.getMessage());
+            } else {
+                Log.e(name, "Could not prewarm fonts because " + e.getMessage());
+            }
+        }
+    }
+
+    // Max time CREATE_EDIT waits for a font that is still prewarming, face is swapped in when ready otherwise
+    public static void setFontWaitTimeout(int milliseconds) {
+        MobileInput.fontWaitTimeoutMillis = Math.max(0, milliseconds);
+    }
+
+    // Collect counters, latency histograms and trace sections (off by default)
+    public static void setMetricsEnabled(boolean isEnabled) {
+        Metrics.setEnabled(isEnabled);
+    }
+
+    // Metrics snapshot in JSON format: {"enabled": .., "counters": {..}, "histograms": {..}}
+    public static String getMetrics() {
+        return Metrics.snapshot();
+    }
+
+    public static void resetMetrics() {
+        Metrics.reset();
+    }
+
+    // Record inbound commands and outbound data in memory for offline replay (0 uses 16 MB)
+    public static void startSessionRecording(int maxBytes) {
+        SessionRecorder.start(maxBytes);
+    }
+
+    // Stop recording and write it to path, false when nothing was recorded or writing failed
+    public static boolean stopSessionRecording(String path) {
+        try {
+            return SessionRecorder.stop(new File(path));
+        } catch (IOException e) {
+            Log.e(name, "Could not write session recording '" + path + "' because " + e.getMessage());
+            return false;
+        }
+    }
+
+    // Max number of custom fonts kept loaded, least recently used are evicted (0 keeps all)
+    public static void setTypefaceCacheSize(int size) {
+        TypefaceCache.SetMaxSize(size);
+    }
+
+    // TypefaceCache hit/miss/load-time statistics in JSON format
+    public static String getTypefaceCacheStats() {
+        return TypefaceCache.GetStats();
+    }
+
+    // Keyboard height expected for next show, sent with KEYBOARD_PREPARE (UI thread)
+    static float getPredictedKeyboardHeight() {
+        return keyboardProvider != null ? keyboardProvider.getPredictedHeight() : 0;
+    }
+
+    // Id of the focused MobileInput, MobileInput.NO_FOCUS when none
+    public static int getFocusedId() {
+        return MobileInput.getFocusedId();
+    }
+
     /*public static boolean hasActiveSelection(final int id) {
         return MobileInput.hasSelectionActive(id);
     }*/
@@ -5,55 +5,276 @@ import android.content.res.AssetManager;
 import android.graphics.Typeface;
 import android.util.Log;
 
-import java.util.Hashtable;
+import org.json.JSONException;
+import org.json.JSONObject;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Concurrent typeface cache, each font is loaded once without blocking lookups of other fonts
+// Optionally bounded (least recently used faces are evicted), system faces are pinned
 public class TypefaceCache {
     private static final String TAG = "TypefaceCache";
 
-    private static boolean isInitialized = false;
-    private static Hashtable<String, Typeface> cache = new Hashtable<String, Typeface>();
+    // Load state of one font, other callers of same key wait on the latch while it loads
+    private static final class Entry {
+        final CountDownLatch loaded = new CountDownLatch(1);
+        final boolean isPinned;
+        volatile Typeface typeface;
+        volatile long lastAccess;
+
+        Entry(boolean isPinned) {
+            this.isPinned = isPinned;
+        }
+    }
+
+    // Receives prewarm results on the loader thread
+    public interface PrewarmListener {
+        void onTypefaceLoaded(String cacheKey, Typeface font);
+
+        void onPrewarmFinished(int loaded, int failed);
+    }
+
+    private static final ConcurrentHashMap<String, Entry> cache = new ConcurrentHashMap<>();
+    private static final Object evictionLock = new Object();
+    private static final AtomicLong clock = new AtomicLong();
+    private static volatile int maxSize = 0;
+    private static ExecutorService executor;
+
+    private static final AtomicLong hitCount = new AtomicLong();
+    private static final AtomicLong missCount = new AtomicLong();
+    // Lookups that gave up waiting for another thread's load
+    private static final AtomicLong timeoutCount = new AtomicLong();
+    private static final AtomicLong loadCount = new AtomicLong();
+    private static final AtomicLong loadFailureCount = new AtomicLong();
+    private static final AtomicLong loadTimeNanos = new AtomicLong();
+    private static final AtomicLong evictionCount = new AtomicLong();
+
+    static {
+        Pin("Roboto-Regular", Typeface.create("sans-serif", Typeface.NORMAL));
+        Pin("Roboto-Light", Typeface.create("sans-serif-light", Typeface.NORMAL));
+        Pin("Roboto-Thin", Typeface.create("sans-serif-thin", Typeface.NORMAL));
+        Pin("Roboto-Bold", Typeface.create("sans-serif", Typeface.BOLD));
+        Pin("Roboto-Medium", Typeface.create("sans-serif-medium", Typeface.NORMAL));
+    }
 
-    static void Initialize() {
-        isInitialized = true;
-        cache.put("Roboto-Regular", Typeface.create("sans-serif", Typeface.NORMAL));
-        cache.put("Roboto-Light", Typeface.create("sans-serif-light", Typeface.NORMAL));
-        cache.put("Roboto-Thin", Typeface.create("sans-serif-thin", Typeface.NORMAL));
-        cache.put("Roboto-Bold", Typeface.create("sans-serif", Typeface.BOLD));
-        cache.put("Roboto-Medium", Typeface.create("sans-serif-medium", Typeface.NORMAL));
+    // Keep face resident regardless of size bound
+    private static void Pin(String cacheKey, Typeface font) {
+        Entry entry = new Entry(true);
+        entry.typeface = font;
+        entry.loaded.countDown();
+        cache.put(cacheKey, entry);
+    }
+
+    // Max number of loaded (non pinned) faces, 0 keeps every face
+    public static void SetMaxSize(int value) {
+        maxSize = Math.max(0, value);
+        Trim();
     }
 
     public static Typeface GetOrCreate(Context context, String assetPath) {
-        synchronized (cache) {
-            if(!isInitialized)
-                Initialize();
-
-            if(context == null  || assetPath == null || assetPath.trim().isEmpty())
-                return null;
-
-            //Remove Extension
-            String cacheKey = assetPath;
-            int pos = cacheKey.lastIndexOf(".");
-            if (pos > 0 && pos < (cacheKey.length() - 1)) { // If '.' is not the first or last character.
-                cacheKey = cacheKey.substring(0, pos);
+        return GetOrCreate(context, assetPath, -1);
+    }
+
+    // Get face, loading it on this thread when missing
+    // When another thread is loading it, wait at most timeoutMillis (negative waits until loaded)
+    public static Typeface GetOrCreate(Context context, String assetPath, long timeoutMillis) {
+        if (context == null || assetPath == null)
+            return null;
+
+        String cacheKey = GetCacheKey(assetPath);
+        if (cacheKey == null)
+            return null;
+
+        Entry entry = cache.get(cacheKey);
+        if (entry == null) {
+            Entry created = new Entry(false);
+            entry = cache.putIfAbsent(cacheKey, created);
+            if (entry == null) {
+                missCount.incrementAndGet();
+                return Load(context.getAssets(), assetPath, cacheKey, created);
+            }
+        }
+        if (!WaitLoaded(entry, timeoutMillis)) {
+            timeoutCount.incrementAndGet();
+            return null;
+        }
+        hitCount.incrementAndGet();
+        entry.lastAccess = clock.incrementAndGet();
+        return entry.typeface;
+    }
+
+    // Load faces on a background thread, keys are claimed right away so GetOrCreate waits for them
+    public static void Prewarm(Context context, String[] assetPaths, final PrewarmListener listener) {
+        final AssetManager assetManager = context.getApplicationContext().getAssets();
+        final String[] paths = new String[assetPaths.length];
+        final String[] keys = new String[assetPaths.length];
+        final Entry[] entries = new Entry[assetPaths.length];
+        final boolean[] isClaimed = new boolean[assetPaths.length];
+        int count = 0;
+        for (String assetPath : assetPaths) {
+            String cacheKey = GetCacheKey(assetPath);
+            if (cacheKey == null)
+                continue;
+            Entry created = new Entry(false);
+            Entry entry = cache.putIfAbsent(cacheKey, created);
+            paths[count] = assetPath;
+            keys[count] = cacheKey;
+            entries[count] = entry != null ? entry : created;
+            isClaimed[count] = entry == null;
+            if (entry == null) {
+                missCount.incrementAndGet();
             }
-            if(cacheKey.trim().isEmpty())
-                return null;
-
-            Typeface font = cache.containsKey(cacheKey)? cache.get(cacheKey) : null;
-            if (font == null) {
-                try {
-                    AssetManager assetManager = context.getAssets();
-                    font = Typeface.createFromAsset(assetManager, assetPath);
-                    if(font != null) {
-                        cache.put(cacheKey, font);
+            count++;
+        }
+        final int size = count;
+        GetExecutor().execute(new Runnable() {
+            @Override
+            public void run() {
+                int loaded = 0;
+                for (int i = 0; i < size; i++) {
+                    // Faces claimed by other callers are awaited so completion means every face is ready
+                    Typeface font = isClaimed[i] ? Load(assetManager, paths[i], keys[i], entries[i]) : Await(entries[i], -1);
+                    if (font != null) {
+                        loaded++;
                     }
-                } catch (Exception e) {
-                    font = null;
-                    Log.e(TAG, "Could not get typeface '" + assetPath
-                            + "' because " + e.getMessage());
+                    if (listener != null && isClaimed[i]) {
+                        listener.onTypefaceLoaded(keys[i], font);
+                    }
+                }
+                if (listener != null) {
+                    listener.onPrewarmFinished(loaded, size - loaded);
+                }
+            }
+        });
+    }
+
+    // Check if face is being loaded by another thread
+    public static boolean IsLoading(String assetPath) {
+        String cacheKey = GetCacheKey(assetPath);
+        Entry entry = cacheKey != null ? cache.get(cacheKey) : null;
+        return entry != null && entry.loaded.getCount() > 0;
+    }
+
+    // Cache key of an asset path: path without extension, null if empty
+    public static String GetCacheKey(String assetPath) {
+        return FontKeys.fromAssetPath(assetPath);
+    }
+
+    // Hit/miss/timeout/load statistics in JSON format
+    public static String GetStats() {
+        JSONObject stats = new JSONObject();
+        try {
+            long loads = loadCount.get();
+            long nanos = loadTimeNanos.get();
+            stats.put("size", cache.size());
+            stats.put("maxSize", maxSize);
+            stats.put("hits", hitCount.get());
+            stats.put("misses", missCount.get());
+            stats.put("timeouts", timeoutCount.get());
+            stats.put("loads", loads);
+            stats.put("failures", loadFailureCount.get());
+            stats.put("evictions", evictionCount.get());
+            stats.put("loadTimeMs", nanos / 1000000.0);
+            stats.put("averageLoadTimeMs", loads > 0 ? nanos / 1000000.0 / loads : 0);
+        } catch (JSONException e) {
+            e.printStackTrace();
+        }
+        return stats.toString();
+    }
+
+    private static Typeface Load(AssetManager assetManager, String assetPath, String cacheKey, Entry entry) {
+        long start = System.nanoTime();
+        Typeface font = null;
+        try {
+            font = Typeface.createFromAsset(assetManager, assetPath);
+        } catch (Exception e) {
+            Log.e(TAG, "Could not get typeface '" + assetPath
+                    + "' because " + e.getMessage());
+        }
+        loadTimeNanos.addAndGet(System.nanoTime() - start);
+        loadCount.incrementAndGet();
+
+        entry.typeface = font;
+        entry.lastAccess = clock.incrementAndGet();
+        if (font == null) {
+            // Not cached, next call will try again
+            loadFailureCount.incrementAndGet();
+            cache.remove(cacheKey, entry);
+        }
+        entry.loaded.countDown();
+        if (font != null) {
+            Trim();
+        }
+        return font;
+    }
+
+    private static synchronized ExecutorService GetExecutor() {
+        if (executor == null) {
+            executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, TAG);
+                    thread.setDaemon(true);
+                    thread.setPriority(Thread.MIN_PRIORITY);
+                    return thread;
+                }
+            });
+        }
+        return executor;
+    }
+
+    private static Typeface Await(Entry entry, long timeoutMillis) {
+        if (!WaitLoaded(entry, timeoutMillis))
+            return null;
+        entry.lastAccess = clock.incrementAndGet();
+        return entry.typeface;
+    }
+
+    // False when the wait timed out or was interrupted
+    private static boolean WaitLoaded(Entry entry, long timeoutMillis) {
+        try {
+            if (timeoutMillis < 0) {
+                entry.loaded.await();
+                return true;
+            }
+            return entry.loaded.await(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    // Evict least recently used loaded faces above max size
+    private static void Trim() {
+        if (maxSize <= 0)
+            return;
+
+        synchronized (evictionLock) {
+            while (true) {
+                int count = 0;
+                Map.Entry<String, Entry> oldest = null;
+                for (Map.Entry<String, Entry> item : cache.entrySet()) {
+                    Entry entry = item.getValue();
+                    if (entry.isPinned || entry.loaded.getCount() > 0)
+                        continue;
+                    count++;
+                    if (oldest == null || entry.lastAccess < oldest.getValue().lastAccess) {
+                        oldest = item;
+                    }
+                }
+                if (count <= maxSize || oldest == null)
+                    return;
+                if (cache.remove(oldest.getKey(), oldest.getValue())) {
+                    evictionCount.incrementAndGet();
                 }
             }
-            return font;
         }
     }
 }
@@ -0,0 +1,39 @@
+package com.unity3d.player;
+
+import android.app.Activity;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Stand-in for the Unity runtime (unity.jar is compile only), keeps every delivered message with its time
+public class UnityPlayer {
+
+    public static class Delivery {
+        public final long time;
+        public final String object;
+        public final String method;
+        public final String message;
+
+        Delivery(long time, String object, String method, String message) {
+            this.time = time;
+            this.object = object;
+            this.method = method;
+            this.message = message;
+        }
+    }
+
+    public static Activity currentActivity;
+    private static final List<Delivery> deliveries = new ArrayList<>();
+
+    public static synchronized void UnitySendMessage(String object, String method, String message) {
+        deliveries.add(new Delivery(System.nanoTime(), object, method, message));
+    }
+
+    public static synchronized List<Delivery> getDeliveries() {
+        return new ArrayList<>(deliveries);
+    }
+
+    public static synchronized void clear() {
+        deliveries.clear();
+    }
+}
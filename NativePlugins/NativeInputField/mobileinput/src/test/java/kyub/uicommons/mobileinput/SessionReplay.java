@@ -0,0 +1,90 @@
+package kyub.uicommons.mobileinput;
+
+import com.unity3d.player.UnityPlayer;
+import kyub.uicommons.common.SessionReader;
+import kyub.uicommons.common.SessionRecorder;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.robolectric.Robolectric;
+import org.robolectric.util.Scheduler;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.TimeUnit;
+
+// Replay a SessionRecorder file against Plugin / MobileInput on the Robolectric main looper
+// Recorded gaps advance the scheduler clock instead of sleeping, so runs are deterministic
+class SessionReplay {
+
+    static class Result {
+        int inbound;
+        int recordedOutbound;
+        int outbound;
+        long recordedMicros;
+        long wallNanos;
+        long allocatedBytes = -1;
+
+        JSONObject toJson() throws JSONException {
+            JSONObject json = new JSONObject();
+            json.put("inbound", inbound);
+            json.put("recordedOutbound", recordedOutbound);
+            json.put("outbound", outbound);
+            json.put("recordedMs", recordedMicros / 1000.0);
+            json.put("wallMs", wallNanos / 1000000.0);
+            json.put("inboundPerSecond", wallNanos > 0 ? inbound * 1000000000.0 / wallNanos : 0);
+            json.put("allocatedBytes", allocatedBytes);
+            json.put("allocatedBytesPerInbound", allocatedBytes >= 0 && inbound > 0 ? allocatedBytes / (double) inbound : -1);
+            return json;
+        }
+    }
+
+    // Time given to frame callbacks (rect pass, coalesced flush) after last record
+    private static final long SETTLE_MILLIS = 100;
+
+    static Result replay(SessionReader reader) {
+        Scheduler scheduler = Robolectric.getForegroundThreadScheduler();
+        Result result = new Result();
+        int deliveredBefore = UnityPlayer.getDeliveries().size();
+        long allocatedBefore = getAllocatedBytes();
+        long start = System.nanoTime();
+        long lastTime = 0;
+        while (reader.next()) {
+            long gap = reader.getTime() - lastTime;
+            lastTime = reader.getTime();
+            if (gap > 0) {
+                scheduler.advanceBy(gap, TimeUnit.MICROSECONDS);
+            }
+            switch (reader.getType()) {
+                case SessionRecorder.INBOUND:
+                    result.inbound++;
+                    Plugin.execute(reader.getId(), reader.getPayload());
+                    break;
+                case SessionRecorder.INBOUND_BATCH:
+                    result.inbound++;
+                    Plugin.executeBatch(reader.getPayload());
+                    break;
+                case SessionRecorder.OUTBOUND:
+                    result.recordedOutbound++;
+                    break;
+            }
+        }
+        scheduler.advanceBy(SETTLE_MILLIS, TimeUnit.MILLISECONDS);
+        result.wallNanos = System.nanoTime() - start;
+        long allocatedAfter = getAllocatedBytes();
+        if (allocatedBefore >= 0 && allocatedAfter >= 0) {
+            result.allocatedBytes = allocatedAfter - allocatedBefore;
+        }
+        result.outbound = UnityPlayer.getDeliveries().size() - deliveredBefore;
+        result.recordedMicros = lastTime;
+        return result;
+    }
+
+    // Bytes allocated by this thread, -1 when the JVM cannot tell
+    private static long getAllocatedBytes() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,144 @@
+package kyub.uicommons.mobileinput;
+
+import android.app.Activity;
+import android.view.View;
+import android.widget.FrameLayout;
+
+import com.unity3d.player.UnityPlayer;
+import kyub.uicommons.common.Common;
+import kyub.uicommons.common.SessionReader;
+import kyub.uicommons.common.SessionRecorder;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+// Replay sessions through Plugin.execute and report throughput and allocations to build/reports/replay
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 27)
+public class SessionReplayTest {
+
+    private static final int INPUT_COUNT = 20;
+    private static final int FRAME_COUNT = 100;
+    private static final int TEXT_INTERVAL = 4;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Before
+    public void setUp() {
+        Activity activity = Robolectric.setupActivity(Activity.class);
+        // Plugin attaches its layout next to the first leaf view, like the player view of a Unity activity
+        FrameLayout content = new FrameLayout(activity);
+        content.addView(new View(activity));
+        activity.setContentView(content);
+        UnityPlayer.currentActivity = activity;
+        UnityPlayer.clear();
+        Plugin.init();
+    }
+
+    @After
+    public void tearDown() {
+        Plugin.destroy();
+        Common.setCoalescing(false);
+        Common.setProtocol(Common.PROTOCOL_JSON);
+    }
+
+    // Heavy screen: many inputs moved every frame while one of them is typed into
+    @Test
+    public void replaySyntheticSession() throws Exception {
+        File file = temporaryFolder.newFile("synthetic.ksr");
+        SessionRecorder.start(0);
+        for (int id = 1; id <= INPUT_COUNT; id++) {
+            SessionRecorder.recordInbound(id, createCommand(id));
+        }
+        for (int frame = 0; frame < FRAME_COUNT; frame++) {
+            for (int id = 1; id <= INPUT_COUNT; id++) {
+                SessionRecorder.recordInbound(id, setRectCommand(id, frame));
+            }
+            if (frame % TEXT_INTERVAL == 0) {
+                SessionRecorder.recordInbound(1, "{\"msg\":\"SET_TEXT\",\"text\":\"Frame " + frame + "\"}");
+            }
+        }
+        assertTrue(SessionRecorder.stop(file));
+
+        SessionReplay.Result result = SessionReplay.replay(SessionReader.open(file));
+        writeReport("synthetic", result);
+
+        assertEquals(INPUT_COUNT + INPUT_COUNT * FRAME_COUNT + FRAME_COUNT / TEXT_INTERVAL, result.inbound);
+        int readyCount = 0;
+        for (UnityPlayer.Delivery delivery : UnityPlayer.getDeliveries()) {
+            JSONObject info = new JSONObject(delivery.message);
+            assertFalse(delivery.message, info.has("error"));
+            if (info.has("data") && "READY".equals(new JSONObject(info.getString("data")).optString("msg"))) {
+                readyCount++;
+            }
+        }
+        assertEquals(INPUT_COUNT, readyCount);
+    }
+
+    // Production recording: ./gradlew :mobileinput:testDebugUnitTest -PreplaySession=<file>
+    @Test
+    public void replayRecordedSession() throws Exception {
+        String path = System.getProperty("replay.session");
+        Assume.assumeTrue(path != null && !path.isEmpty());
+        File file = new File(path);
+        SessionReplay.Result result = SessionReplay.replay(SessionReader.open(file));
+        writeReport(file.getName(), result);
+        assertTrue(result.inbound > 0);
+    }
+
+    private static String createCommand(int id) {
+        float y = (id - 1) / (float) INPUT_COUNT;
+        return "{\"msg\":\"CREATE_EDIT\",\"placeholder\":\"Input " + id + "\",\"font\":\"\",\"font_size\":32.0,"
+                + "\"x\":0.1,\"y\":" + y + ",\"width\":0.8,\"height\":0.04,"
+                + "\"pan_content_x\":0.0,\"pan_content_y\":0.0,\"pan_content_width\":1.0,\"pan_content_height\":1.0,"
+                + "\"character_limit\":0,"
+                + "\"text_color_r\":0.0,\"text_color_g\":0.0,\"text_color_b\":0.0,\"text_color_a\":1.0,"
+                + "\"back_color_r\":1.0,\"back_color_g\":1.0,\"back_color_b\":1.0,\"back_color_a\":0.0,"
+                + "\"placeholder_color_r\":0.5,\"placeholder_color_g\":0.5,\"placeholder_color_b\":0.5,\"placeholder_color_a\":1.0,"
+                + "\"content_type\":\"Standard\",\"input_type\":\"Standard\",\"keyboard_type\":\"Default\","
+                + "\"return_key_type\":\"Done\",\"align\":\"MiddleLeft\",\"multiline\":false}";
+    }
+
+    // Scrolling list, every input moves up a little each frame
+    private static String setRectCommand(int id, int frame) {
+        float y = (id - 1) / (float) INPUT_COUNT - frame * 0.001f;
+        return "{\"msg\":\"SET_RECT\",\"x\":0.1,\"y\":" + y + ",\"width\":0.8,\"height\":0.04,"
+                + "\"pan_content_x\":0.0,\"pan_content_y\":0.0,\"pan_content_width\":1.0,\"pan_content_height\":1.0}";
+    }
+
+    private static void writeReport(String name, SessionReplay.Result result) throws Exception {
+        String report = result.toJson().toString();
+        String directory = System.getProperty("replay.reportDir");
+        if (directory == null) {
+            return;
+        }
+        File file = new File(directory, name + ".json");
+        if (!file.getParentFile().isDirectory() && !file.getParentFile().mkdirs()) {
+            throw new IOException("Could not create " + file.getParent());
+        }
+        OutputStream out = new FileOutputStream(file);
+        try {
+            out.write(report.getBytes("UTF-8"));
+        } finally {
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package kyub.uicommons.common;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.List;
+
+// JSON envelopes delivered to Plugins.OnDataReceive and Plugins.OnBatchReceive
+public class Envelope {
+
+    // {"name": plugin, "data": data}
+    public static String data(String plugin, String data) {
+        JSONObject info = new JSONObject();
+        try {
+            info.put("name", plugin);
+            info.put("data", data);
+        } catch (JSONException e) {
+            e.printStackTrace();
+        }
+        return info.toString();
+    }
+
+    // {"name": plugin, "error": {"code": code, "message": message}}
+    public static String error(String plugin, String code, String message) {
+        JSONObject error = new JSONObject();
+        JSONObject info = new JSONObject();
+        try {
+            error.put("code", code);
+            error.put("message", message);
+            info.put("name", plugin);
+            info.put("error", error);
+        } catch (JSONException e) {
+            e.printStackTrace();
+        }
+        return info.toString();
+    }
+
+    // {"batch": [{"name": plugin, "data": data}, ...]} for the first count messages
+    public static String batch(List<Message> messages, int count) {
+        JSONArray batch = new JSONArray();
+        try {
+            for (int i = 0; i < count; i++) {
+                Message message = messages.get(i);
+                JSONObject info = new JSONObject();
+                info.put("name", message.plugin);
+                info.put("data", message.toJson().toString());
+                batch.put(info);
+            }
+        } catch (JSONException e) {
+            e.printStackTrace();
+        }
+        JSONObject info = new JSONObject();
+        try {
+            info.put("batch", batch);
+        } catch (JSONException e) {
+            e.printStackTrace();
+        }
+        return info.toString();
+    }
+}
@@ -0,0 +1,146 @@
+package kyub.uicommons.common;
+
+// Decode Base64 payloads written with the FrameWriter primitives (varint, zigzag, float, text)
+public class FrameReader {
+
+    private static final byte[] BASE64_VALUES = new byte[128];
+
+    static {
+        for (int i = 0; i < BASE64_VALUES.length; i++) {
+            BASE64_VALUES[i] = -1;
+        }
+        String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+        for (int i = 0; i < alphabet.length(); i++) {
+            BASE64_VALUES[alphabet.charAt(i)] = (byte) i;
+        }
+    }
+
+    private byte[] buffer = new byte[256];
+    private char[] chars = new char[64];
+    private int position;
+    private int limit;
+
+    // Decode Base64 payload into the internal buffer, reusing it when large enough
+    public void reset(String base64) {
+        position = 0;
+        limit = 0;
+        int length = base64.length();
+        while (length > 0 && base64.charAt(length - 1) == '=') {
+            length--;
+        }
+        int size = (length * 3) / 4;
+        if (buffer.length < size) {
+            buffer = new byte[size];
+        }
+        int bits = 0;
+        int bitCount = 0;
+        for (int i = 0; i < length; i++) {
+            char c = base64.charAt(i);
+            int value = c < 128 ? BASE64_VALUES[c] : -1;
+            if (value < 0) {
+                throw new IllegalArgumentException("Invalid Base64 character at " + i);
+            }
+            bits = (bits << 6) | value;
+            bitCount += 6;
+            if (bitCount >= 8) {
+                bitCount -= 8;
+                buffer[limit++] = (byte) (bits >> bitCount);
+            }
+        }
+    }
+
+    public int remaining() {
+        return limit - position;
+    }
+
+    public int readByte() {
+        check(1);
+        return buffer[position++] & 0xFF;
+    }
+
+    public boolean readBool() {
+        return readByte() != 0;
+    }
+
+    public int readInt() {
+        check(4);
+        int value = (buffer[position] & 0xFF)
+                | ((buffer[position + 1] & 0xFF) << 8)
+                | ((buffer[position + 2] & 0xFF) << 16)
+                | ((buffer[position + 3] & 0xFF) << 24);
+        position += 4;
+        return value;
+    }
+
+    public float readFloat() {
+        return Float.intBitsToFloat(readInt());
+    }
+
+    public int readVarint() {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = readByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint");
+    }
+
+    public int readZigzag() {
+        int value = readVarint();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    // Read length-prefixed UTF-8 text, a malformed or truncated sequence throws IllegalArgumentException
+    public String readText() {
+        int length = readVarint();
+        check(length);
+        if (chars.length < length) {
+            chars = new char[length];
+        }
+        int end = position + length;
+        int count = 0;
+        while (position < end) {
+            int b = buffer[position++] & 0xFF;
+            if (b < 0x80) {
+                chars[count++] = (char) b;
+            } else if (b < 0xC0) {
+                throw new IllegalArgumentException("Malformed UTF-8 sequence");
+            } else if (b < 0xE0) {
+                chars[count++] = (char) (((b & 0x1F) << 6) | readContinuation(end));
+            } else if (b < 0xF0) {
+                chars[count++] = (char) (((b & 0x0F) << 12) | (readContinuation(end) << 6) | readContinuation(end));
+            } else {
+                int codePoint = ((b & 0x07) << 18) | (readContinuation(end) << 12)
+                        | (readContinuation(end) << 6) | readContinuation(end);
+                if (b > 0xF4 || codePoint < 0x10000 || codePoint > 0x10FFFF) {
+                    throw new IllegalArgumentException("Malformed UTF-8 sequence");
+                }
+                chars[count++] = (char) (0xD800 + ((codePoint - 0x10000) >>> 10));
+                chars[count++] = (char) (0xDC00 + (codePoint & 0x3FF));
+            }
+        }
+        return new String(chars, 0, count);
+    }
+
+    // Low 6 bits of the next byte of a multi-byte sequence, which must not run past the text
+    private int readContinuation(int end) {
+        if (position >= end) {
+            throw new IllegalArgumentException("Truncated UTF-8 sequence");
+        }
+        int b = buffer[position++] & 0xFF;
+        if ((b & 0xC0) != 0x80) {
+            throw new IllegalArgumentException("Malformed UTF-8 sequence");
+        }
+        return b & 0x3F;
+    }
+
+    // Sizes come from the payload, compare against remaining bytes so huge values cannot overflow
+    private void check(int size) {
+        if (size < 0 || size > limit - position) {
+            throw new IllegalArgumentException("Unexpected end of frame");
+        }
+    }
+}
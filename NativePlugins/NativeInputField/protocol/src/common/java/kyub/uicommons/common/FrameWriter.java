@@ -0,0 +1,215 @@
+package kyub.uicommons.common;
+
+// Encode Messages into the framed bridge protocol
+//
+// Frame layout (all varints are unsigned LEB128, ids are zigzag encoded):
+//   byte   magic ('K')
+//   byte   version
+//   varint message count
+//   per message:
+//     text   plugin name
+//     varint kind
+//     text   message name ("msg" of the JSON format)
+//     byte   flags (bit 0: has id)
+//     varint id (only when flag set)
+//     varint field count
+//     per field: text key, byte type, then int = zigzag varint, float = 4 bytes little endian,
+//                bool = 1 byte, text = varint byte length + UTF-8 bytes
+//
+// UnitySendMessage only transports strings, so the frame is delivered as Base64.
+// Plugins.OnFrameReceive decodes each message into the same object the JSON format carries.
+// The primitives are public so other payloads (e.g. CREATE_EDIT descriptors) use the same encoding.
+public class FrameWriter {
+
+    public static final byte MAGIC = 'K';
+    public static final byte VERSION = 2;
+
+    private static final char[] BASE64 = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".toCharArray();
+
+    private byte[] buffer = new byte[256];
+    private char[] chars = new char[344];
+    private int position;
+    private int countPosition;
+    private int messageCount;
+
+    // Start a new frame, reusing the internal buffer
+    public void begin() {
+        position = 0;
+        messageCount = 0;
+        writeByte(MAGIC);
+        writeByte(VERSION);
+        // Reserve a fixed width varint for message count, patched in finish()
+        countPosition = position;
+        ensure(3);
+        position += 3;
+    }
+
+    // Start a payload without frame header, written with the primitives only
+    public void beginRaw() {
+        position = 0;
+        messageCount = 0;
+        countPosition = -1;
+    }
+
+    // Append one message to the current frame
+    public void write(Message message) {
+        writeText(message.plugin);
+        writeVarint(message.kind);
+        writeText(message.name);
+        writeByte(message.hasId ? 1 : 0);
+        if (message.hasId) {
+            writeVarint(zigzag(message.id));
+        }
+        writeVarint(message.count);
+        for (int i = 0; i < message.count; i++) {
+            byte type = message.types[i];
+            writeText(message.keys[i]);
+            writeByte(type);
+            switch (type) {
+                case Message.TYPE_INT:
+                    writeVarint(zigzag((int) message.numbers[i]));
+                    break;
+                case Message.TYPE_FLOAT:
+                    writeInt(Float.floatToIntBits((float) message.numbers[i]));
+                    break;
+                case Message.TYPE_BOOL:
+                    writeByte(message.numbers[i] != 0 ? 1 : 0);
+                    break;
+                case Message.TYPE_TEXT:
+                    writeText(message.texts[i]);
+                    break;
+            }
+        }
+        messageCount++;
+    }
+
+    // Patch the message count (frames only) and return the payload as Base64
+    public String finish() {
+        if (countPosition >= 0) {
+            buffer[countPosition] = (byte) ((messageCount & 0x7F) | 0x80);
+            buffer[countPosition + 1] = (byte) (((messageCount >>> 7) & 0x7F) | 0x80);
+            buffer[countPosition + 2] = (byte) ((messageCount >>> 14) & 0x7F);
+        }
+        return toBase64();
+    }
+
+    // Size in bytes of the current frame
+    public int size() {
+        return position;
+    }
+
+    private static int zigzag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    public void writeByte(int value) {
+        ensure(1);
+        buffer[position++] = (byte) value;
+    }
+
+    // 4 bytes little endian
+    public void writeInt(int value) {
+        ensure(4);
+        buffer[position++] = (byte) value;
+        buffer[position++] = (byte) (value >>> 8);
+        buffer[position++] = (byte) (value >>> 16);
+        buffer[position++] = (byte) (value >>> 24);
+    }
+
+    public void writeFloat(float value) {
+        writeInt(Float.floatToIntBits(value));
+    }
+
+    public void writeZigzag(int value) {
+        writeVarint(zigzag(value));
+    }
+
+    public void writeVarint(int value) {
+        ensure(5);
+        while ((value & ~0x7F) != 0) {
+            buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[position++] = (byte) value;
+    }
+
+    // Write length-prefixed UTF-8 without allocating an intermediate byte array
+    public void writeText(String text) {
+        if (text == null) {
+            writeVarint(0);
+            return;
+        }
+        int length = text.length();
+        int utf8Length = 0;
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                utf8Length++;
+            } else if (c < 0x800) {
+                utf8Length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(text.charAt(i + 1))) {
+                utf8Length += 4;
+                i++;
+            } else {
+                utf8Length += 3;
+            }
+        }
+        writeVarint(utf8Length);
+        ensure(utf8Length);
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                buffer[position++] = (byte) c;
+            } else if (c < 0x800) {
+                buffer[position++] = (byte) (0xC0 | (c >> 6));
+                buffer[position++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(text.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, text.charAt(++i));
+                buffer[position++] = (byte) (0xF0 | (codePoint >> 18));
+                buffer[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                buffer[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                buffer[position++] = (byte) (0x80 | (codePoint & 0x3F));
+            } else {
+                buffer[position++] = (byte) (0xE0 | (c >> 12));
+                buffer[position++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                buffer[position++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+    }
+
+    private void ensure(int extra) {
+        if (position + extra > buffer.length) {
+            byte[] newBuffer = new byte[Math.max(buffer.length * 2, position + extra)];
+            System.arraycopy(buffer, 0, newBuffer, 0, position);
+            buffer = newBuffer;
+        }
+    }
+
+    private String toBase64() {
+        int length = ((position + 2) / 3) * 4;
+        if (chars.length < length) {
+            chars = new char[length];
+        }
+        int out = 0;
+        int i = 0;
+        for (; i + 2 < position; i += 3) {
+            int bits = ((buffer[i] & 0xFF) << 16) | ((buffer[i + 1] & 0xFF) << 8) | (buffer[i + 2] & 0xFF);
+            chars[out++] = BASE64[(bits >>> 18) & 0x3F];
+            chars[out++] = BASE64[(bits >>> 12) & 0x3F];
+            chars[out++] = BASE64[(bits >>> 6) & 0x3F];
+            chars[out++] = BASE64[bits & 0x3F];
+        }
+        int remaining = position - i;
+        if (remaining > 0) {
+            int bits = (buffer[i] & 0xFF) << 16;
+            if (remaining == 2) {
+                bits |= (buffer[i + 1] & 0xFF) << 8;
+            }
+            chars[out++] = BASE64[(bits >>> 18) & 0x3F];
+            chars[out++] = BASE64[(bits >>> 12) & 0x3F];
+            chars[out++] = remaining == 2 ? BASE64[(bits >>> 6) & 0x3F] : '=';
+            chars[out++] = '=';
+        }
+        return new String(chars, 0, out);
+    }
+}
@@ -0,0 +1,177 @@
+package kyub.uicommons.common;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+// Typed outbound message, serialized by Common either as JSON or as a binary frame
+public class Message {
+
+    static final byte TYPE_INT = 1;
+    static final byte TYPE_FLOAT = 2;
+    static final byte TYPE_BOOL = 3;
+    static final byte TYPE_TEXT = 4;
+
+    // Recycled messages (guarded by itself)
+    private static final int POOL_SIZE = 32;
+    private static final Message[] pool = new Message[POOL_SIZE];
+    private static int poolCount = 0;
+
+    String plugin;
+    String name;
+    int kind;
+    int id;
+    boolean hasId;
+    boolean coalescable;
+    int count;
+    String[] keys = new String[4];
+    byte[] types = new byte[4];
+    double[] numbers = new double[4];
+    String[] texts = new String[4];
+
+    // Constructor
+    public Message(String plugin, int kind, String name) {
+        this.plugin = plugin;
+        this.kind = kind;
+        this.name = name;
+    }
+
+    // Get message from pool or create a new one
+    public static Message obtain(String plugin, int kind, String name) {
+        synchronized (pool) {
+            if (poolCount > 0) {
+                Message message = pool[--poolCount];
+                pool[poolCount] = null;
+                message.plugin = plugin;
+                message.kind = kind;
+                message.name = name;
+                return message;
+            }
+        }
+        return new Message(plugin, kind, name);
+    }
+
+    // Clear message and return it to pool, must not be used afterwards
+    public void recycle() {
+        for (int i = 0; i < count; i++) {
+            keys[i] = null;
+            texts[i] = null;
+        }
+        plugin = null;
+        name = null;
+        kind = 0;
+        id = 0;
+        hasId = false;
+        coalescable = false;
+        count = 0;
+        synchronized (pool) {
+            if (poolCount < POOL_SIZE) {
+                pool[poolCount++] = this;
+            }
+        }
+    }
+
+    // Set id of the sender (MobileInput id)
+    public Message setId(int id) {
+        this.id = id;
+        this.hasId = true;
+        return this;
+    }
+
+    public Message putInt(String key, int value) {
+        append(key, TYPE_INT).numbers[count - 1] = value;
+        return this;
+    }
+
+    public Message putFloat(String key, float value) {
+        append(key, TYPE_FLOAT).numbers[count - 1] = value;
+        return this;
+    }
+
+    public Message putBool(String key, boolean value) {
+        append(key, TYPE_BOOL).numbers[count - 1] = value ? 1 : 0;
+        return this;
+    }
+
+    public Message putText(String key, String value) {
+        append(key, TYPE_TEXT).texts[count - 1] = value != null ? value : "";
+        return this;
+    }
+
+    // Pending message of same plugin, kind and id is dropped when this one is queued
+    public Message setCoalescable(boolean value) {
+        this.coalescable = value;
+        return this;
+    }
+
+    public boolean isCoalescable() {
+        return coalescable;
+    }
+
+    // Check if queued message carries stale state replaced by other
+    boolean supersededBy(Message other) {
+        return kind == other.kind && hasId == other.hasId && id == other.id
+                && (plugin == null ? other.plugin == null : plugin.equals(other.plugin));
+    }
+
+    public String getPlugin() {
+        return plugin;
+    }
+
+    public int getKind() {
+        return kind;
+    }
+
+    // Build data in the legacy JSON format ("msg", fields, "id")
+    public JSONObject toJson() {
+        JSONObject json = new JSONObject();
+        try {
+            json.put("msg", name);
+            for (int i = 0; i < count; i++) {
+                switch (types[i]) {
+                    case TYPE_INT:
+                        json.put(keys[i], (int) numbers[i]);
+                        break;
+                    case TYPE_FLOAT:
+                        json.put(keys[i], numbers[i]);
+                        break;
+                    case TYPE_BOOL:
+                        json.put(keys[i], numbers[i] != 0);
+                        break;
+                    case TYPE_TEXT:
+                        json.put(keys[i], texts[i]);
+                        break;
+                }
+            }
+            if (hasId) {
+                json.put("id", id);
+            }
+        } catch (JSONException e) {
+            e.printStackTrace();
+        }
+        return json;
+    }
+
+    // Reserve a new field slot, growing storage when needed
+    private Message append(String key, byte type) {
+        if (count == keys.length) {
+            int size = count * 2;
+            String[] newKeys = new String[size];
+            byte[] newTypes = new byte[size];
+            double[] newNumbers = new double[size];
+            String[] newTexts = new String[size];
+            System.arraycopy(keys, 0, newKeys, 0, count);
+            System.arraycopy(types, 0, newTypes, 0, count);
+            System.arraycopy(numbers, 0, newNumbers, 0, count);
+            System.arraycopy(texts, 0, newTexts, 0, count);
+            keys = newKeys;
+            types = newTypes;
+            numbers = newNumbers;
+            texts = newTexts;
+        }
+        keys[count] = key;
+        types[count] = type;
+        texts[count] = null;
+        count++;
+        return this;
+    }
+}
@@ -0,0 +1,140 @@
+package kyub.uicommons.common;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// In-process counters and latency histograms of the bridge hot paths
+// Disabled by default, every call is a single volatile read until enabled
+public class Metrics {
+
+    // Counters
+    public static final int MESSAGES_IN = 0;
+    public static final int MESSAGES_OUT = 1;
+    public static final int BYTES_SERIALIZED = 2;
+    public static final int UI_HOPS = 3;
+    public static final int COALESCED = 4;
+    public static final int DROPPED = 5;
+    public static final int KEYBOARD_LAYOUTS = 6;
+    private static final String[] COUNTER_NAMES = {"messagesIn", "messagesOut", "bytesSerialized", "uiHops", "coalesced", "dropped", "keyboardLayouts"};
+
+    // Latency histograms
+    public static final int QUEUE_WAIT = 0;
+    public static final int PROCESS_MESSAGE = 1;
+    public static final int CREATE = 2;
+    public static final int SET_RECT = 3;
+    public static final int SEND_DATA = 4;
+    private static final String[] HISTOGRAM_NAMES = {"queueWait", "processMessage", "create", "setRect", "sendData"};
+
+    // Power of two buckets in microseconds: bucket i holds durations below 2^i us
+    private static final int BUCKET_COUNT = 32;
+    // Per histogram: count, total nanos, max nanos, then buckets
+    private static final int HISTOGRAM_STRIDE = BUCKET_COUNT + 3;
+
+    private static volatile boolean enabled = false;
+    private static final AtomicLongArray counters = new AtomicLongArray(COUNTER_NAMES.length);
+    private static final AtomicLongArray histograms = new AtomicLongArray(HISTOGRAM_NAMES.length * HISTOGRAM_STRIDE);
+
+    public static void setEnabled(boolean value) {
+        enabled = value;
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static void count(int counter) {
+        if (enabled) {
+            counters.incrementAndGet(counter);
+        }
+    }
+
+    public static void add(int counter, long value) {
+        if (enabled) {
+            counters.addAndGet(counter, value);
+        }
+    }
+
+    // Start time for record(), 0 when disabled
+    public static long start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    // Record time elapsed since start()
+    public static void record(int histogram, long startNanos) {
+        if (startNanos == 0 || !enabled) {
+            return;
+        }
+        long nanos = System.nanoTime() - startNanos;
+        int offset = histogram * HISTOGRAM_STRIDE;
+        histograms.incrementAndGet(offset);
+        histograms.addAndGet(offset + 1, nanos);
+        long max;
+        while (nanos > (max = histograms.get(offset + 2)) && !histograms.compareAndSet(offset + 2, max, nanos)) {
+            // Retry, max was updated by another thread
+        }
+        long micros = nanos / 1000;
+        int bucket = micros <= 0 ? 0 : Math.min(BUCKET_COUNT - 1, 64 - Long.numberOfLeadingZeros(micros));
+        histograms.incrementAndGet(offset + 3 + bucket);
+    }
+
+    public static void reset() {
+        for (int i = 0; i < counters.length(); i++) {
+            counters.set(i, 0);
+        }
+        for (int i = 0; i < histograms.length(); i++) {
+            histograms.set(i, 0);
+        }
+    }
+
+    // Counters and histograms (count, mean/max and p50/p90/p99 bucket bounds in microseconds) in JSON format
+    public static String snapshot() {
+        JSONObject snapshot = new JSONObject();
+        try {
+            snapshot.put("enabled", enabled);
+            JSONObject counterValues = new JSONObject();
+            for (int i = 0; i < COUNTER_NAMES.length; i++) {
+                counterValues.put(COUNTER_NAMES[i], counters.get(i));
+            }
+            snapshot.put("counters", counterValues);
+            JSONObject histogramValues = new JSONObject();
+            long[] buckets = new long[BUCKET_COUNT];
+            for (int i = 0; i < HISTOGRAM_NAMES.length; i++) {
+                int offset = i * HISTOGRAM_STRIDE;
+                long count = histograms.get(offset);
+                for (int j = 0; j < BUCKET_COUNT; j++) {
+                    buckets[j] = histograms.get(offset + 3 + j);
+                }
+                JSONObject histogram = new JSONObject();
+                histogram.put("count", count);
+                histogram.put("meanUs", count > 0 ? histograms.get(offset + 1) / 1000.0 / count : 0);
+                histogram.put("maxUs", histograms.get(offset + 2) / 1000.0);
+                histogram.put("p50Us", percentile(buckets, count, 0.5));
+                histogram.put("p90Us", percentile(buckets, count, 0.9));
+                histogram.put("p99Us", percentile(buckets, count, 0.99));
+                histogramValues.put(HISTOGRAM_NAMES[i], histogram);
+            }
+            snapshot.put("histograms", histogramValues);
+        } catch (JSONException e) {
+            e.printStackTrace();
+        }
+        return snapshot.toString();
+    }
+
+    // Upper bound of the bucket holding the given rank
+    private static long percentile(long[] buckets, long count, double fraction) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(count * fraction);
+        long seen = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            seen += buckets[i];
+            if (seen >= rank) {
+                return 1L << i;
+            }
+        }
+        return 1L << (buckets.length - 1);
+    }
+}
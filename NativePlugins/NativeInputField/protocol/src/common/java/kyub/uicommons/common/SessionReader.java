@@ -0,0 +1,117 @@
+package kyub.uicommons.common;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+// Read a file written by SessionRecorder, one record at a time
+public class SessionReader {
+
+    private final byte[] data;
+    private int position;
+
+    // Current record
+    private int type;
+    private long time;
+    private int id;
+    private String method;
+    private String payload;
+
+    public SessionReader(byte[] data) {
+        this.data = data;
+        if (data.length < SessionRecorder.MAGIC.length + 1 || data[0] != SessionRecorder.MAGIC[0]
+                || data[1] != SessionRecorder.MAGIC[1] || data[2] != SessionRecorder.MAGIC[2]) {
+            throw new IllegalArgumentException("Invalid session recording");
+        }
+        int version = data[3];
+        if (version < 1 || version > SessionRecorder.VERSION) {
+            throw new IllegalArgumentException("Unsupported session recording version " + version);
+        }
+        position = SessionRecorder.MAGIC.length + 1;
+    }
+
+    public static SessionReader open(File file) throws IOException {
+        InputStream in = new FileInputStream(file);
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream((int) file.length());
+            byte[] chunk = new byte[8192];
+            int count;
+            while ((count = in.read(chunk)) > 0) {
+                out.write(chunk, 0, count);
+            }
+            return new SessionReader(out.toByteArray());
+        } finally {
+            in.close();
+        }
+    }
+
+    // Move to next record, false at end of recording
+    public boolean next() {
+        if (position >= data.length) {
+            return false;
+        }
+        type = data[position++];
+        time += readVarint();
+        id = 0;
+        method = null;
+        if (type == SessionRecorder.INBOUND) {
+            int value = readVarint();
+            id = (value >>> 1) ^ -(value & 1);
+        } else if (type == SessionRecorder.OUTBOUND) {
+            method = readText();
+        } else if (type != SessionRecorder.INBOUND_BATCH) {
+            throw new IllegalArgumentException("Unknown record type " + type);
+        }
+        payload = readText();
+        return true;
+    }
+
+    // SessionRecorder.INBOUND, INBOUND_BATCH or OUTBOUND
+    public int getType() {
+        return type;
+    }
+
+    // Microseconds since recording started
+    public long getTime() {
+        return time;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public String getPayload() {
+        return payload;
+    }
+
+    private int readVarint() {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            if (position >= data.length) {
+                break;
+            }
+            int b = data[position++] & 0xFF;
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint");
+    }
+
+    private String readText() {
+        int length = readVarint();
+        if (position + length > data.length) {
+            throw new IllegalArgumentException("Unexpected end of recording");
+        }
+        String text = new String(data, position, length, SessionRecorder.UTF8);
+        position += length;
+        return text;
+    }
+}
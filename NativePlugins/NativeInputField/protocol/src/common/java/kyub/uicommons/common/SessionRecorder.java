@@ -0,0 +1,157 @@
+package kyub.uicommons.common;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+
+// Capture inbound commands and outbound payloads of a session for offline replay
+// Records are kept in memory (bounded) and written to a file on stop, read back with SessionReader
+//
+// File layout (varints are unsigned LEB128):
+//   bytes  magic "KSR", byte version
+//   per record:
+//     byte   type (INBOUND, INBOUND_BATCH, OUTBOUND)
+//     varint microseconds since previous record
+//     varint zigzag id (INBOUND only)
+//     text   receiver method (OUTBOUND only)
+//     text   payload
+//   text = varint byte length + UTF-8 bytes
+public class SessionRecorder {
+
+    public static final byte VERSION = 1;
+    public static final int INBOUND = 1;
+    public static final int INBOUND_BATCH = 2;
+    public static final int OUTBOUND = 3;
+
+    static final byte[] MAGIC = {'K', 'S', 'R'};
+    static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private static final int DEFAULT_MAX_BYTES = 16 * 1024 * 1024;
+
+    private static volatile boolean recording = false;
+    // Guarded by lock
+    private static final Object lock = new Object();
+    private static byte[] buffer = new byte[0];
+    private static int position;
+    private static int maxBytes;
+    private static long lastTime;
+    private static int droppedCount;
+
+    public static boolean isRecording() {
+        return recording;
+    }
+
+    // Start a new recording, records above maxBytes are dropped (0 uses 16 MB)
+    public static void start(int maxBytes) {
+        synchronized (lock) {
+            SessionRecorder.maxBytes = maxBytes > 0 ? maxBytes : DEFAULT_MAX_BYTES;
+            buffer = new byte[Math.min(SessionRecorder.maxBytes, 64 * 1024)];
+            position = 0;
+            droppedCount = 0;
+            lastTime = System.nanoTime();
+            recording = true;
+        }
+    }
+
+    // Stop recording and write it to file, nothing is written when no recording was started
+    public static boolean stop(File file) throws IOException {
+        byte[] data;
+        int size;
+        synchronized (lock) {
+            if (!recording) {
+                return false;
+            }
+            recording = false;
+            data = buffer;
+            size = position;
+            buffer = new byte[0];
+            position = 0;
+        }
+        OutputStream out = new FileOutputStream(file);
+        try {
+            out.write(MAGIC);
+            out.write(VERSION);
+            out.write(data, 0, size);
+        } finally {
+            out.close();
+        }
+        return true;
+    }
+
+    // Records dropped because recording was full
+    public static int getDroppedCount() {
+        synchronized (lock) {
+            return droppedCount;
+        }
+    }
+
+    public static void recordInbound(int id, String data) {
+        if (recording) {
+            record(INBOUND, id, null, data);
+        }
+    }
+
+    public static void recordInboundBatch(String data) {
+        if (recording) {
+            record(INBOUND_BATCH, 0, null, data);
+        }
+    }
+
+    public static void recordOutbound(String method, String payload) {
+        if (recording) {
+            record(OUTBOUND, 0, method, payload);
+        }
+    }
+
+    private static void record(int type, int id, String method, String payload) {
+        byte[] methodBytes = method != null ? method.getBytes(UTF8) : null;
+        byte[] payloadBytes = (payload != null ? payload : "").getBytes(UTF8);
+        synchronized (lock) {
+            if (!recording) {
+                return;
+            }
+            // type + time, id and 2 length varints of at most 5 bytes each
+            int size = 21 + payloadBytes.length + (methodBytes != null ? methodBytes.length : 0);
+            if (position + size > maxBytes) {
+                droppedCount++;
+                return;
+            }
+            ensure(size);
+            long now = System.nanoTime();
+            buffer[position++] = (byte) type;
+            writeVarint((int) Math.min(Integer.MAX_VALUE, (now - lastTime) / 1000));
+            lastTime = now;
+            if (type == INBOUND) {
+                writeVarint((id << 1) ^ (id >> 31));
+            }
+            if (type == OUTBOUND) {
+                writeBytes(methodBytes);
+            }
+            writeBytes(payloadBytes);
+        }
+    }
+
+    private static void ensure(int size) {
+        if (position + size > buffer.length) {
+            byte[] newBuffer = new byte[Math.min(maxBytes, Math.max(buffer.length * 2, position + size))];
+            System.arraycopy(buffer, 0, newBuffer, 0, position);
+            buffer = newBuffer;
+        }
+    }
+
+    private static void writeVarint(int value) {
+        while ((value & ~0x7F) != 0) {
+            buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[position++] = (byte) value;
+    }
+
+    private static void writeBytes(byte[] bytes) {
+        writeVarint(bytes.length);
+        System.arraycopy(bytes, 0, buffer, position, bytes.length);
+        position += bytes.length;
+    }
+}
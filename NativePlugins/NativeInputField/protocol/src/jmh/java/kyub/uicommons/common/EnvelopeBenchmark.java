@@ -0,0 +1,92 @@
+package kyub.uicommons.common;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+// Outbound envelope building (Common.send / Common.flush) for both protocols
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EnvelopeBenchmark {
+
+    private static final String PLUGIN = "mobileinput";
+    private static final int BATCH_SIZE = 16;
+
+    private final FrameWriter frameWriter = new FrameWriter();
+    private final ArrayList<Message> batch = new ArrayList<>();
+    private Message textChange;
+
+    @Setup
+    public void setup() {
+        textChange = textChange(1, "Hello world, this is a typical input value");
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            batch.add(textChange(i, "Value " + i));
+        }
+    }
+
+    private static Message textChange(int id, String text) {
+        return new Message(PLUGIN, 5, "TEXT_CHANGE").setId(id).putText("text", text);
+    }
+
+    // Common.sendNow with PROTOCOL_JSON
+    @Benchmark
+    public String jsonData() {
+        return Envelope.data(textChange.getPlugin(), textChange.toJson().toString());
+    }
+
+    // Common.sendNow with PROTOCOL_FRAMED
+    @Benchmark
+    public String framedData() {
+        frameWriter.begin();
+        frameWriter.write(textChange);
+        return frameWriter.finish();
+    }
+
+    // Common.flush with PROTOCOL_JSON
+    @Benchmark
+    public String jsonBatch() {
+        return Envelope.batch(batch, BATCH_SIZE);
+    }
+
+    // Common.flush with PROTOCOL_FRAMED
+    @Benchmark
+    public String framedBatch() {
+        frameWriter.begin();
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            frameWriter.write(batch.get(i));
+        }
+        return frameWriter.finish();
+    }
+
+    // Full cycle of a keyboard event: pooled message, framed, recycled
+    @Benchmark
+    public String framedPooledMessage() {
+        Message message = Message.obtain(PLUGIN, 1, "KEYBOARD_ACTION")
+                .putBool("show", true)
+                .putFloat("height", 0.42f);
+        frameWriter.begin();
+        frameWriter.write(message);
+        String frame = frameWriter.finish();
+        message.recycle();
+        return frame;
+    }
+
+    @Benchmark
+    public String error() {
+        return Envelope.error(PLUGIN, "RECEIVE_ERROR", "Unexpected end of frame");
+    }
+}
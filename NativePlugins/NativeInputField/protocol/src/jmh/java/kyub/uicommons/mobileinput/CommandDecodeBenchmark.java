@@ -0,0 +1,102 @@
+package kyub.uicommons.mobileinput;
+
+import kyub.uicommons.common.FrameReader;
+import kyub.uicommons.common.FrameWriter;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// Inbound command decoding done by MobileInput.processMessage
+// Note: org.json on the JVM is not the Android implementation, compare builds rather than absolute numbers
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CommandDecodeBenchmark {
+
+    private static final int LAYOUT_WIDTH = 1080;
+    private static final int LAYOUT_HEIGHT = 2280;
+    private static final String SET_RECT = "{\"msg\":\"SET_RECT\",\"x\":0.125,\"y\":0.5,\"width\":0.75,\"height\":0.0625,"
+            + "\"pan_content_x\":0.0,\"pan_content_y\":0.0,\"pan_content_width\":1.0,\"pan_content_height\":1.0}";
+    private static final String CREATE = "{\"msg\":\"CREATE_EDIT\",\"placeholder\":\"Type here\",\"font\":\"Lato-Regular.ttf\","
+            + "\"font_size\":42.0,\"x\":0.125,\"y\":0.5,\"width\":0.75,\"height\":0.0625,"
+            + "\"pan_content_x\":0.0,\"pan_content_y\":0.0,\"pan_content_width\":1.0,\"pan_content_height\":1.0,"
+            + "\"character_limit\":0,"
+            + "\"text_color_r\":0.1,\"text_color_g\":0.1,\"text_color_b\":0.1,\"text_color_a\":1.0,"
+            + "\"back_color_r\":1.0,\"back_color_g\":1.0,\"back_color_b\":1.0,\"back_color_a\":0.0,"
+            + "\"placeholder_color_r\":0.5,\"placeholder_color_g\":0.5,\"placeholder_color_b\":0.5,\"placeholder_color_a\":1.0,"
+            + "\"content_type\":\"Standard\",\"input_type\":\"Standard\",\"keyboard_type\":\"Default\","
+            + "\"return_key_type\":\"Done\",\"align\":\"MiddleLeft\",\"multiline\":false}";
+
+    private final FrameReader reader = new FrameReader();
+    private final InputRect rect = new InputRect();
+    private String createDescriptor;
+
+    @Setup
+    public void setup() {
+        createDescriptor = buildCreateDescriptor();
+    }
+
+    // processMessage + processData + SetRect
+    @Benchmark
+    public InputRect setRectJson() throws JSONException {
+        JSONObject data = new JSONObject(SET_RECT);
+        data.getString("msg");
+        rect.decode(data, LAYOUT_WIDTH, LAYOUT_HEIGHT);
+        return rect;
+    }
+
+    // processMessage + Create, legacy JSON
+    @Benchmark
+    public CreateOptions createJson() throws JSONException {
+        JSONObject data = new JSONObject(CREATE);
+        data.getString("msg");
+        return CreateOptions.fromJson(data);
+    }
+
+    // processMessage + Create, compact descriptor
+    @Benchmark
+    public CreateOptions createDescriptor() {
+        return CreateOptions.isDescriptor(createDescriptor) ? CreateOptions.fromDescriptor(reader, createDescriptor) : null;
+    }
+
+    // Same command as CREATE, encoded as descriptor v1
+    private static String buildCreateDescriptor() {
+        FrameWriter writer = new FrameWriter();
+        writer.beginRaw();
+        writer.writeByte(FrameWriter.MAGIC);
+        writer.writeByte(CreateOptions.DESCRIPTOR_VERSION);
+        writer.writeVarint(CreateOptions.DESCRIPTOR_CREATE);
+        writer.writeText("Type here");
+        writer.writeText("Lato-Regular.ttf");
+        writer.writeFloat(42f);
+        float[] rect = {0.125f, 0.5f, 0.75f, 0.0625f, 0f, 0f, 1f, 1f};
+        for (float value : rect) {
+            writer.writeFloat(value);
+        }
+        writer.writeZigzag(0);
+        writer.writeInt(0xFF191919);
+        writer.writeInt(0x00FFFFFF);
+        writer.writeInt(0xFF7F7F7F);
+        writer.writeVarint(0);
+        writer.writeVarint(0);
+        writer.writeVarint(0);
+        writer.writeVarint(2);
+        writer.writeVarint(3);
+        writer.writeByte(0);
+        return writer.finish();
+    }
+}
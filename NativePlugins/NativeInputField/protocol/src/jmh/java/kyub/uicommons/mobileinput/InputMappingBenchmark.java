@@ -0,0 +1,66 @@
+package kyub.uicommons.mobileinput;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+// Content type / keyboard / alignment mapping and TypefaceCache key normalization
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InputMappingBenchmark {
+
+    private final CreateOptions options = new CreateOptions();
+    private int index;
+
+    @Setup
+    public void setup() {
+        options.inputType = 2;
+        options.keyboardType = 4;
+    }
+
+    // Enum names of the legacy JSON command to ordinals
+    @Benchmark
+    public void enumNames(Blackhole blackhole) {
+        blackhole.consume(CreateOptions.indexOf(CreateOptions.CONTENT_TYPES, "Custom"));
+        blackhole.consume(CreateOptions.indexOf(CreateOptions.KEYBOARD_TYPES, "DecimalPad"));
+        blackhole.consume(CreateOptions.indexOf(CreateOptions.RETURN_KEY_TYPES, "Search"));
+        blackhole.consume(CreateOptions.indexOf(CreateOptions.ALIGNMENTS, "LowerRight"));
+    }
+
+    // Ordinals to EditText input type, gravity and IME options, cycling through every content type
+    @Benchmark
+    public void editFlags(Blackhole blackhole) {
+        index = (index + 1) % CreateOptions.CONTENT_TYPES.length;
+        options.contentType = index;
+        options.alignment = index % CreateOptions.ALIGNMENTS.length;
+        options.returnKeyType = index % CreateOptions.RETURN_KEY_TYPES.length;
+        blackhole.consume(options.getEditInputType());
+        blackhole.consume(options.getGravity());
+        blackhole.consume(options.getImeOptions());
+        blackhole.consume(options.isPassword());
+    }
+
+    @Benchmark
+    public String fontKeyWithExtension() {
+        return FontKeys.fromAssetPath("res/font/Lato-Regular.ttf");
+    }
+
+    @Benchmark
+    public String fontKeyWithoutExtension() {
+        return FontKeys.fromAssetPath("res/font/Lato-Regular");
+    }
+}
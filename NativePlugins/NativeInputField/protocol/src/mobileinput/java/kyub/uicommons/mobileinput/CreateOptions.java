@@ -0,0 +1,331 @@
+package kyub.uicommons.mobileinput;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import kyub.uicommons.common.FrameReader;
+
+// Decoded CREATE_EDIT command, built from the legacy JSON or from a compact descriptor
+//
+// Descriptor v1 (Base64, FrameWriter primitives):
+//   byte   magic ('K'), byte version, varint command (1 = CREATE_EDIT)
+//   text   placeholder, text font, float font size
+//   float  x, y, width, height, pan x, pan y, pan width, pan height (normalized)
+//   zigzag character limit
+//   int    text color, back color, placeholder color (ARGB)
+//   varint content type, input type, keyboard type, return key type, alignment (Unity enum ordinals)
+//   byte   flags (bit 0: multiline, bit 1: text delta, bit 2: translate position)
+// Later versions may append fields, unknown trailing bytes are ignored.
+class CreateOptions {
+
+    static final int DESCRIPTOR_VERSION = 1;
+    static final int DESCRIPTOR_CREATE = 1;
+
+    private static final int FLAG_MULTILINE = 1;
+    private static final int FLAG_TEXT_DELTA = 1 << 1;
+    private static final int FLAG_TRANSLATE_POSITION = 1 << 2;
+
+    // Unity enum names in ordinal order
+    static final String[] CONTENT_TYPES = {"Standard", "Autocorrected", "IntegerNumber", "DecimalNumber", "Alphanumeric", "Name", "EmailAddress", "Password", "Pin", "Custom"};
+    static final String[] INPUT_TYPES = {"Standard", "AutoCorrect", "Password"};
+    static final String[] KEYBOARD_TYPES = {"Default", "ASCIICapable", "NumbersAndPunctuation", "URL", "NumberPad", "PhonePad", "NamePhonePad", "EmailAddress", "NintendoNetworkAccount", "Social", "Search", "DecimalPad"};
+    static final String[] RETURN_KEY_TYPES = {"Default", "Next", "Done", "Search"};
+    static final String[] ALIGNMENTS = {"UpperLeft", "UpperCenter", "UpperRight", "MiddleLeft", "MiddleCenter", "MiddleRight", "LowerLeft", "LowerCenter", "LowerRight"};
+
+    static final int CONTENT_PASSWORD = 7;
+    static final int CONTENT_CUSTOM = 9;
+    static final int INPUT_PASSWORD = 2;
+    static final int KEYBOARD_NUMBERS_AND_PUNCTUATION = 2;
+    static final int KEYBOARD_NUMBER_PAD = 4;
+    static final int KEYBOARD_PHONE_PAD = 5;
+
+    // Platform constants (android.text.InputType, android.view.Gravity, android.view.inputmethod.EditorInfo)
+    // Copied so the mapping builds and runs on a plain JVM, values are part of the public Android API
+    private static final class InputType {
+        static final int TYPE_CLASS_TEXT = 0x00000001;
+        static final int TYPE_CLASS_NUMBER = 0x00000002;
+        static final int TYPE_CLASS_PHONE = 0x00000003;
+        static final int TYPE_TEXT_FLAG_CAP_SENTENCES = 0x00004000;
+        static final int TYPE_TEXT_FLAG_AUTO_CORRECT = 0x00008000;
+        static final int TYPE_TEXT_FLAG_MULTI_LINE = 0x00020000;
+        static final int TYPE_TEXT_FLAG_NO_SUGGESTIONS = 0x00080000;
+        static final int TYPE_TEXT_VARIATION_URI = 0x00000010;
+        static final int TYPE_TEXT_VARIATION_EMAIL_ADDRESS = 0x00000020;
+        static final int TYPE_TEXT_VARIATION_PERSON_NAME = 0x00000060;
+        static final int TYPE_TEXT_VARIATION_PASSWORD = 0x00000080;
+        static final int TYPE_NUMBER_FLAG_SIGNED = 0x00001000;
+        static final int TYPE_NUMBER_FLAG_DECIMAL = 0x00002000;
+        static final int TYPE_NUMBER_VARIATION_PASSWORD = 0x00000010;
+    }
+
+    private static final class Gravity {
+        static final int CENTER_HORIZONTAL = 0x01;
+        static final int LEFT = 0x03;
+        static final int RIGHT = 0x05;
+        static final int CENTER_VERTICAL = 0x10;
+        static final int TOP = 0x30;
+        static final int BOTTOM = 0x50;
+    }
+
+    private static final class EditorInfo {
+        static final int IME_ACTION_SEARCH = 0x00000003;
+        static final int IME_ACTION_NEXT = 0x00000005;
+        static final int IME_ACTION_DONE = 0x00000006;
+        static final int IME_FLAG_NO_EXTRACT_UI = 0x10000000;
+    }
+
+    String placeholder;
+    String font;
+    float fontSize;
+    // x, y, width, height, pan x, pan y, pan width, pan height
+    final float[] rect = new float[8];
+    int characterLimit;
+    int textColor;
+    int backColor;
+    int placeholderColor;
+    int contentType;
+    int inputType;
+    int keyboardType;
+    int returnKeyType;
+    int alignment = -1;
+    boolean multiline;
+    boolean textDelta;
+    boolean translatePosition;
+
+    // Check if command data is a descriptor instead of JSON
+    static boolean isDescriptor(String data) {
+        if (data == null) {
+            return false;
+        }
+        // JSON may start with whitespace, which is never part of a Base64 descriptor
+        int length = data.length();
+        int i = 0;
+        while (i < length && Character.isWhitespace(data.charAt(i))) {
+            i++;
+        }
+        return i < length && data.charAt(i) != '{';
+    }
+
+    // Decode descriptor in one pass
+    static CreateOptions fromDescriptor(FrameReader reader, String data) {
+        reader.reset(data);
+        if (reader.readByte() != 'K') {
+            throw new IllegalArgumentException("Invalid descriptor");
+        }
+        int version = reader.readByte();
+        if (version < 1 || version > DESCRIPTOR_VERSION) {
+            throw new IllegalArgumentException("Unsupported descriptor version " + version);
+        }
+        int command = reader.readVarint();
+        if (command != DESCRIPTOR_CREATE) {
+            throw new IllegalArgumentException("Unsupported descriptor command " + command);
+        }
+        CreateOptions options = new CreateOptions();
+        options.placeholder = reader.readText();
+        options.font = reader.readText();
+        options.fontSize = reader.readFloat();
+        for (int i = 0; i < options.rect.length; i++) {
+            options.rect[i] = reader.readFloat();
+        }
+        options.characterLimit = reader.readZigzag();
+        options.textColor = reader.readInt();
+        options.backColor = reader.readInt();
+        options.placeholderColor = reader.readInt();
+        options.contentType = reader.readVarint();
+        options.inputType = reader.readVarint();
+        options.keyboardType = reader.readVarint();
+        options.returnKeyType = reader.readVarint();
+        options.alignment = reader.readVarint();
+        int flags = reader.readByte();
+        options.multiline = (flags & FLAG_MULTILINE) != 0;
+        options.textDelta = (flags & FLAG_TEXT_DELTA) != 0;
+        options.translatePosition = (flags & FLAG_TRANSLATE_POSITION) != 0;
+        return options;
+    }
+
+    // Decode legacy JSON command
+    static CreateOptions fromJson(JSONObject data) throws JSONException {
+        CreateOptions options = new CreateOptions();
+        options.placeholder = data.getString("placeholder");
+        options.font = data.getString("font");
+        options.fontSize = (float) data.getDouble("font_size");
+        options.rect[0] = (float) data.getDouble("x");
+        options.rect[1] = (float) data.getDouble("y");
+        options.rect[2] = (float) data.getDouble("width");
+        options.rect[3] = (float) data.getDouble("height");
+        options.rect[4] = (float) data.getDouble("pan_content_x");
+        options.rect[5] = (float) data.getDouble("pan_content_y");
+        options.rect[6] = (float) data.getDouble("pan_content_width");
+        options.rect[7] = (float) data.getDouble("pan_content_height");
+        options.characterLimit = data.getInt("character_limit");
+        options.textColor = getColor(data, "text_color_");
+        options.backColor = getColor(data, "back_color_");
+        options.placeholderColor = getColor(data, "placeholder_color_");
+        options.contentType = indexOf(CONTENT_TYPES, data.getString("content_type"));
+        options.inputType = indexOf(INPUT_TYPES, data.optString("input_type"));
+        options.keyboardType = indexOf(KEYBOARD_TYPES, data.optString("keyboard_type"));
+        options.returnKeyType = indexOf(RETURN_KEY_TYPES, data.getString("return_key_type"));
+        options.alignment = indexOf(ALIGNMENTS, data.getString("align"));
+        options.multiline = data.getBoolean("multiline");
+        options.textDelta = data.optBoolean("text_delta", false);
+        options.translatePosition = data.optBoolean("translate_position", false);
+        return options;
+    }
+
+    // Password fields only support the default font
+    boolean isPassword() {
+        return contentType == CONTENT_PASSWORD || (contentType == CONTENT_CUSTOM && inputType == INPUT_PASSWORD);
+    }
+
+    // Map content, keyboard and input type to EditText input type flags
+    int getEditInputType() {
+        int editInputType = 0;
+        switch (contentType) {
+            case 0: // Standard
+                editInputType |= InputType.TYPE_CLASS_TEXT | InputType.TYPE_TEXT_FLAG_CAP_SENTENCES;
+                break; // This is default behaviour
+            case 1: // Autocorrected
+                editInputType |= InputType.TYPE_CLASS_TEXT | InputType.TYPE_TEXT_FLAG_CAP_SENTENCES | InputType.TYPE_TEXT_FLAG_AUTO_CORRECT;
+                break;
+            case 2: // IntegerNumber
+                editInputType |= InputType.TYPE_CLASS_NUMBER;
+                break;
+            case 3: // DecimalNumber
+                editInputType |= InputType.TYPE_CLASS_NUMBER | InputType.TYPE_NUMBER_FLAG_DECIMAL;
+                break;
+            case 4: // Alphanumeric
+                editInputType |= InputType.TYPE_CLASS_TEXT | InputType.TYPE_TEXT_FLAG_CAP_SENTENCES;
+                break;
+            case 5: // Name
+                editInputType |= InputType.TYPE_CLASS_TEXT | InputType.TYPE_TEXT_VARIATION_PERSON_NAME;
+                break;
+            case 6: // EmailAddress
+                editInputType |= InputType.TYPE_CLASS_TEXT | InputType.TYPE_TEXT_VARIATION_EMAIL_ADDRESS;
+                break;
+            case CONTENT_PASSWORD:
+                editInputType |= InputType.TYPE_CLASS_TEXT | InputType.TYPE_TEXT_VARIATION_PASSWORD;
+                break;
+            case 8: // Pin
+                editInputType |= InputType.TYPE_CLASS_PHONE;
+                break;
+            case CONTENT_CUSTOM: // We need more details
+                switch (keyboardType) {
+                    case 1: // ASCIICapable
+                        editInputType = InputType.TYPE_CLASS_TEXT | InputType.TYPE_TEXT_FLAG_NO_SUGGESTIONS;
+                        break;
+                    case KEYBOARD_NUMBERS_AND_PUNCTUATION:
+                        editInputType = InputType.TYPE_CLASS_NUMBER | InputType.TYPE_NUMBER_FLAG_DECIMAL | InputType.TYPE_NUMBER_FLAG_SIGNED;
+                        break;
+                    case 3: // URL
+                        editInputType = InputType.TYPE_CLASS_TEXT | InputType.TYPE_TEXT_FLAG_NO_SUGGESTIONS | InputType.TYPE_TEXT_VARIATION_URI;
+                        break;
+                    case KEYBOARD_NUMBER_PAD:
+                        editInputType = InputType.TYPE_CLASS_NUMBER;
+                        break;
+                    case 11: // DecimalPad
+                        editInputType = InputType.TYPE_CLASS_NUMBER | InputType.TYPE_NUMBER_FLAG_DECIMAL;
+                        break;
+                    case KEYBOARD_PHONE_PAD:
+                        editInputType = InputType.TYPE_CLASS_PHONE;
+                        break;
+                    case 6: // NamePhonePad
+                        editInputType = InputType.TYPE_CLASS_TEXT | InputType.TYPE_TEXT_VARIATION_PERSON_NAME;
+                        break;
+                    case 7: // EmailAddress
+                        editInputType = InputType.TYPE_CLASS_TEXT | InputType.TYPE_TEXT_VARIATION_EMAIL_ADDRESS;
+                        break;
+                    case 9: // Social
+                        editInputType = InputType.TYPE_TEXT_VARIATION_URI | InputType.TYPE_TEXT_VARIATION_EMAIL_ADDRESS;
+                        break;
+                    case 10: // Search
+                        editInputType = InputType.TYPE_CLASS_TEXT | InputType.TYPE_TEXT_VARIATION_EMAIL_ADDRESS | InputType.TYPE_NUMBER_FLAG_DECIMAL | InputType.TYPE_NUMBER_FLAG_SIGNED;
+                        break;
+                    default:
+                        editInputType = InputType.TYPE_CLASS_TEXT;
+                        break;
+                }
+                switch (inputType) {
+                    case 0: // Standard
+                        break;
+                    case 1: // AutoCorrect
+                        editInputType |= InputType.TYPE_TEXT_FLAG_AUTO_CORRECT;
+                        break;
+                    case INPUT_PASSWORD:
+                        if (keyboardType != KEYBOARD_NUMBERS_AND_PUNCTUATION && keyboardType != KEYBOARD_NUMBER_PAD && keyboardType != KEYBOARD_PHONE_PAD) {
+                            editInputType |= InputType.TYPE_CLASS_TEXT | InputType.TYPE_TEXT_VARIATION_PASSWORD;
+                        } else {
+                            editInputType |= InputType.TYPE_NUMBER_VARIATION_PASSWORD;
+                        }
+                        break;
+                }
+                break;
+            default:
+                editInputType |= InputType.TYPE_CLASS_TEXT;
+                break;
+        }
+        if (multiline) {
+            editInputType |= InputType.TYPE_TEXT_FLAG_MULTI_LINE | InputType.TYPE_TEXT_FLAG_CAP_SENTENCES;
+        }
+        return editInputType;
+    }
+
+    // Map Unity TextAnchor to gravity
+    int getGravity() {
+        switch (alignment) {
+            case 0:
+                return Gravity.TOP | Gravity.LEFT;
+            case 1:
+                return Gravity.TOP | Gravity.CENTER_HORIZONTAL;
+            case 2:
+                return Gravity.TOP | Gravity.RIGHT;
+            case 3:
+                return Gravity.CENTER_VERTICAL | Gravity.LEFT;
+            case 4:
+                return Gravity.CENTER_VERTICAL | Gravity.CENTER_HORIZONTAL;
+            case 5:
+                return Gravity.CENTER_VERTICAL | Gravity.RIGHT;
+            case 6:
+                return Gravity.BOTTOM | Gravity.LEFT;
+            case 7:
+                return Gravity.BOTTOM | Gravity.CENTER_HORIZONTAL;
+            case 8:
+                return Gravity.BOTTOM | Gravity.RIGHT;
+            default:
+                return 0;
+        }
+    }
+
+    // Map return key type to IME options
+    int getImeOptions() {
+        int imeOptions = EditorInfo.IME_FLAG_NO_EXTRACT_UI;
+        switch (returnKeyType) {
+            case 1: // Next
+                imeOptions |= EditorInfo.IME_ACTION_NEXT;
+                break;
+            case 2: // Done
+                imeOptions |= EditorInfo.IME_ACTION_DONE;
+                break;
+            case 3: // Search
+                imeOptions |= EditorInfo.IME_ACTION_SEARCH;
+                break;
+        }
+        return imeOptions;
+    }
+
+    // Pack r/g/b/a floats (0..1) into ARGB int
+    private static int getColor(JSONObject data, String prefix) throws JSONException {
+        int r = (int) (255.0f * data.getDouble(prefix + "r"));
+        int g = (int) (255.0f * data.getDouble(prefix + "g"));
+        int b = (int) (255.0f * data.getDouble(prefix + "b"));
+        int a = (int) (255.0f * data.getDouble(prefix + "a"));
+        return ((a & 0xFF) << 24) | ((r & 0xFF) << 16) | ((g & 0xFF) << 8) | (b & 0xFF);
+    }
+
+    static int indexOf(String[] names, String value) {
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(value)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,30 @@
+package kyub.uicommons.mobileinput;
+
+// TypefaceCache key normalization: asset path without extension, null when blank
+class FontKeys {
+
+    static String fromAssetPath(String assetPath) {
+        if (assetPath == null || isBlank(assetPath, assetPath.length()))
+            return null;
+
+        //Remove Extension
+        int end = assetPath.length();
+        int pos = assetPath.lastIndexOf('.');
+        if (pos > 0 && pos < (end - 1)) { // If '.' is not the first or last character.
+            end = pos;
+        }
+        if (isBlank(assetPath, end))
+            return null;
+        return end == assetPath.length() ? assetPath : assetPath.substring(0, end);
+    }
+
+    // Same test as trim().isEmpty() without allocating
+    private static boolean isBlank(String value, int end) {
+        for (int i = 0; i < end; i++) {
+            if (value.charAt(i) > ' ') {
+                return false;
+            }
+        }
+        return true;
+    }
+}
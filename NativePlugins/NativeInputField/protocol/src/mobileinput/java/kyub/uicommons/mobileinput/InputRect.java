@@ -0,0 +1,34 @@
+package kyub.uicommons.mobileinput;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+// Pixel rect decoded from a SET_RECT command, values in the command are normalized to the layout size
+// Reused by its MobileInput, decode() overwrites every field
+class InputRect {
+
+    int left;
+    int top;
+    int width;
+    int height;
+    // Distance between input bottom and pan content bottom, used as reference to pan the leaf view
+    int offset;
+
+    void decode(JSONObject data, int layoutWidth, int layoutHeight) throws JSONException {
+        double x = data.getDouble("x") * (double) layoutWidth;
+        double y = data.getDouble("y") * (double) layoutHeight;
+        double width = data.getDouble("width") * (double) layoutWidth;
+        double height = data.getDouble("height") * (double) layoutHeight;
+
+        double panY = data.getDouble("pan_content_y") * (double) layoutHeight;
+        double panHeight = data.getDouble("pan_content_height") * (double) layoutHeight;
+
+        int bottom = (int) (y + height);
+        int panBottom = (int) (panY + panHeight);
+        this.left = (int) x;
+        this.top = (int) y;
+        this.width = (int) (x + width) - this.left;
+        this.height = bottom - this.top;
+        this.offset = panBottom - bottom > 0 ? panBottom - bottom : 0;
+    }
+}
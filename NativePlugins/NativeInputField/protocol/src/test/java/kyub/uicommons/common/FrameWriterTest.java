@@ -0,0 +1,53 @@
+package kyub.uicommons.common;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+// Frames must carry everything Plugins.OnFrameReceive needs to rebuild the JSON data (message name and field keys)
+public class FrameWriterTest {
+
+    @Test
+    public void writesSelfDescribingMessages() {
+        FrameWriter writer = new FrameWriter();
+        writer.begin();
+        writer.write(new Message("mobileinput", 3, "TEXT_CHANGE").setId(-7)
+                .putText("text", "héllo")
+                .putFloat("height", 0.25f)
+                .putBool("show", true)
+                .putInt("count", -300));
+        writer.write(new Message("mobileinput", 1, "KEYBOARD_PREPARE"));
+
+        FrameReader reader = new FrameReader();
+        reader.reset(writer.finish());
+        assertEquals(FrameWriter.MAGIC, reader.readByte());
+        assertEquals(FrameWriter.VERSION, reader.readByte());
+        assertEquals(2, reader.readVarint());
+
+        assertEquals("mobileinput", reader.readText());
+        assertEquals(3, reader.readVarint());
+        assertEquals("TEXT_CHANGE", reader.readText());
+        assertEquals(1, reader.readByte());
+        assertEquals(-7, reader.readZigzag());
+        assertEquals(4, reader.readVarint());
+        assertEquals("text", reader.readText());
+        assertEquals(Message.TYPE_TEXT, reader.readByte());
+        assertEquals("héllo", reader.readText());
+        assertEquals("height", reader.readText());
+        assertEquals(Message.TYPE_FLOAT, reader.readByte());
+        assertEquals(0.25f, reader.readFloat(), 0f);
+        assertEquals("show", reader.readText());
+        assertEquals(Message.TYPE_BOOL, reader.readByte());
+        assertEquals(true, reader.readBool());
+        assertEquals("count", reader.readText());
+        assertEquals(Message.TYPE_INT, reader.readByte());
+        assertEquals(-300, reader.readZigzag());
+
+        assertEquals("mobileinput", reader.readText());
+        assertEquals(1, reader.readVarint());
+        assertEquals("KEYBOARD_PREPARE", reader.readText());
+        assertEquals(0, reader.readByte());
+        assertEquals(0, reader.readVarint());
+        assertEquals(0, reader.remaining());
+    }
+}
@@ -0,0 +1,100 @@
+package kyub.uicommons.mobileinput;
+
+import kyub.uicommons.common.FrameReader;
+import kyub.uicommons.common.FrameWriter;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+// Descriptor decoding must reject malformed input with IllegalArgumentException, the only failure processMessage handles
+public class CreateOptionsTest {
+
+    private final FrameReader reader = new FrameReader();
+
+    @Test
+    public void decodesDescriptor() {
+        CreateOptions options = CreateOptions.fromDescriptor(reader, createDescriptor(true));
+        assertEquals("Type here", options.placeholder);
+        assertEquals("Lato-Regular.ttf", options.font);
+        assertEquals(42f, options.fontSize, 0f);
+        assertEquals(0.75f, options.rect[2], 0f);
+        assertEquals(0xFF191919, options.textColor);
+        assertTrue(options.multiline);
+    }
+
+    @Test
+    public void rejectsTruncatedDescriptor() {
+        assertRejected(createDescriptor(false));
+    }
+
+    @Test
+    public void rejectsOversizedTextLength() {
+        FrameWriter writer = new FrameWriter();
+        writer.beginRaw();
+        writer.writeByte(FrameWriter.MAGIC);
+        writer.writeByte(CreateOptions.DESCRIPTOR_VERSION);
+        writer.writeVarint(CreateOptions.DESCRIPTOR_CREATE);
+        writer.writeVarint(0x7FFFFFFE);
+        writer.writeByte('a');
+        writer.writeByte('b');
+        assertRejected(writer.finish());
+    }
+
+    @Test
+    public void rejectsNegativeTextLength() {
+        FrameWriter writer = new FrameWriter();
+        writer.beginRaw();
+        writer.writeByte(FrameWriter.MAGIC);
+        writer.writeByte(CreateOptions.DESCRIPTOR_VERSION);
+        writer.writeVarint(CreateOptions.DESCRIPTOR_CREATE);
+        writer.writeVarint(-2);
+        assertRejected(writer.finish());
+    }
+
+    @Test
+    public void detectsJsonWithLeadingWhitespace() {
+        assertFalse(CreateOptions.isDescriptor(" \n{\"msg\":\"CREATE_EDIT\"}"));
+        assertTrue(CreateOptions.isDescriptor(createDescriptor(true)));
+    }
+
+    private void assertRejected(String descriptor) {
+        try {
+            CreateOptions.fromDescriptor(reader, descriptor);
+            fail("Descriptor was accepted");
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+    }
+
+    // Descriptor v1, cut after the font size when not complete
+    private static String createDescriptor(boolean isComplete) {
+        FrameWriter writer = new FrameWriter();
+        writer.beginRaw();
+        writer.writeByte(FrameWriter.MAGIC);
+        writer.writeByte(CreateOptions.DESCRIPTOR_VERSION);
+        writer.writeVarint(CreateOptions.DESCRIPTOR_CREATE);
+        writer.writeText("Type here");
+        writer.writeText("Lato-Regular.ttf");
+        writer.writeFloat(42f);
+        if (isComplete) {
+            float[] rect = {0.125f, 0.5f, 0.75f, 0.0625f, 0f, 0f, 1f, 1f};
+            for (float value : rect) {
+                writer.writeFloat(value);
+            }
+            writer.writeZigzag(0);
+            writer.writeInt(0xFF191919);
+            writer.writeInt(0x00FFFFFF);
+            writer.writeInt(0xFF7F7F7F);
+            writer.writeVarint(0);
+            writer.writeVarint(0);
+            writer.writeVarint(0);
+            writer.writeVarint(2);
+            writer.writeVarint(3);
+            writer.writeByte(1);
+        }
+        return writer.finish();
+    }
+}
@@ -4,23 +4,33 @@ import android.annotation.TargetApi;
 import android.app.Activity;
 import android.app.Application;
 import android.app.PictureInPictureParams;
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.graphics.Rect;
 import android.os.Build;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.Looper;
+import android.os.PowerManager;
+import android.os.SystemClock;
 import android.util.Log;
 import android.util.Rational;
+import android.view.View;
 
 import com.unity3d.player.UnityPlayer;
 
+import java.lang.ref.WeakReference;
 import java.lang.reflect.Field;
 
 
-public class BackgroundModeUtils implements Application.ActivityLifecycleCallbacks {
+public class BackgroundModeUtils implements Application.ActivityLifecycleCallbacks, ComponentCallbacks2 {
 
-    static boolean s_isPipMode = false;
-    static BackgroundModeUtils s_instance = null;
-    static boolean s_autoPipModeOnPause = false;
+    static volatile boolean s_isPipMode = false;
+    static volatile BackgroundModeUtils s_instance = null;
+    //Application holding the registered callbacks
+    static volatile Application s_registeredApplication = null;
+    static volatile boolean s_autoPipModeOnPause = false;
     static OnPipModeChangedListener s_pipModeChangedUnityCallback = null;
 
     public interface OnPipModeChangedListener {
@@ -31,10 +41,197 @@ public class BackgroundModeUtils implements Application.ActivityLifecycleCallbac
         s_pipModeChangedUnityCallback = pipModeChangedUnityCallback;
     }
 
+    //BACKGROUND TICK MODE
+
+    //Set from Unity thread, read by the tick runnables on main thread
+    static volatile int s_backgroundTickIntervalMillis = 0;
+    static volatile int s_backgroundTickBurstMillis = 0;
+    static volatile int s_backgroundTickBudgetMillis = 0;
+    static volatile OnBackgroundTickModeChangedListener s_backgroundTickModeChangedUnityCallback = null;
+    //Main thread only
+    static Handler s_backgroundTickHandler = null;
+    static boolean s_isBackgroundTicking = false;
+    static boolean s_isBackgroundBurstRunning = false;
+    static long s_backgroundBurstStartTime = 0;
+    static long s_backgroundTickSpentMillis = 0;
+
+    //Called with true when player starts ticking in background, false when it is fully paused (stopped by budget, pressure or activity start)
+    public interface OnBackgroundTickModeChangedListener {
+        void Execute(boolean value);
+    }
+
+    public static void SetBackgroundTickModeChangedUnityCallback(OnBackgroundTickModeChangedListener backgroundTickModeChangedUnityCallback) {
+        s_backgroundTickModeChangedUnityCallback = backgroundTickModeChangedUnityCallback;
+    }
+
+    //Keep player alive while activity is stopped by resuming it for burstMillis every intervalMillis,
+    //at most budgetMillis of running time per background session (intervalMillis <= 0 disables, player is fully paused)
+    //burstMillis is clamped to half of intervalMillis so player is paused at least half of the time
+    public static void SetBackgroundTickMode(int intervalMillis, int burstMillis, int budgetMillis) {
+        s_backgroundTickIntervalMillis = Math.max(0, intervalMillis);
+        s_backgroundTickBurstMillis = Math.max(0, Math.min(burstMillis, intervalMillis / 2));
+        s_backgroundTickBudgetMillis = Math.max(0, budgetMillis);
+
+        TryCreateAndRegisterInstance();
+    }
+
+    public static boolean IsBackgroundTickModeEnabled() {
+        return s_backgroundTickIntervalMillis > 0 && s_backgroundTickBurstMillis > 0 && s_backgroundTickBudgetMillis > 0;
+    }
+
+    public static boolean IsBackgroundTicking() {
+        return s_isBackgroundTicking;
+    }
+
+    static final Runnable s_backgroundBurstStart = new Runnable() {
+        @Override
+        public void run() {
+            if (!s_isBackgroundTicking)
+                return;
+
+            long remainingMillis = s_backgroundTickBudgetMillis - s_backgroundTickSpentMillis;
+            if (remainingMillis <= 0 || IsUnderThermalPressure()) {
+                StopBackgroundTick();
+                return;
+            }
+
+            s_isBackgroundBurstRunning = true;
+            s_backgroundBurstStartTime = SystemClock.uptimeMillis();
+            ResumeUnityPlayer();
+            s_backgroundTickHandler.postDelayed(s_backgroundBurstEnd, Math.min(s_backgroundTickBurstMillis, remainingMillis));
+        }
+    };
+
+    static final Runnable s_backgroundBurstEnd = new Runnable() {
+        @Override
+        public void run() {
+            if (!s_isBackgroundTicking)
+                return;
+
+            EndBackgroundBurst();
+            if (s_backgroundTickSpentMillis >= s_backgroundTickBudgetMillis) {
+                StopBackgroundTick();
+                return;
+            }
+            s_backgroundTickHandler.postDelayed(s_backgroundBurstStart, s_backgroundTickIntervalMillis - s_backgroundTickBurstMillis);
+        }
+    };
+
+    protected static void StartBackgroundTick() {
+        if (s_isBackgroundTicking || !IsBackgroundTickModeEnabled() || IsUnderThermalPressure())
+            return;
+
+        if (s_backgroundTickHandler == null)
+            s_backgroundTickHandler = new Handler(Looper.getMainLooper());
+
+        s_isBackgroundTicking = true;
+        s_backgroundTickSpentMillis = 0;
+        s_backgroundTickHandler.postDelayed(s_backgroundBurstStart, s_backgroundTickIntervalMillis - s_backgroundTickBurstMillis);
+        if (s_backgroundTickModeChangedUnityCallback != null)
+            s_backgroundTickModeChangedUnityCallback.Execute(true);
+    }
+
+    //Back to full pause, player is paused if a burst is running
+    protected static void StopBackgroundTick() {
+        if (!s_isBackgroundTicking)
+            return;
+
+        s_isBackgroundTicking = false;
+        s_backgroundTickHandler.removeCallbacks(s_backgroundBurstStart);
+        s_backgroundTickHandler.removeCallbacks(s_backgroundBurstEnd);
+        if (s_isBackgroundBurstRunning)
+            EndBackgroundBurst();
+        if (s_backgroundTickModeChangedUnityCallback != null)
+            s_backgroundTickModeChangedUnityCallback.Execute(false);
+    }
+
+    //Activity is coming back, player will be resumed by the activity itself
+    protected static void CancelBackgroundTick() {
+        if (s_isBackgroundTicking) {
+            s_isBackgroundBurstRunning = false;
+            StopBackgroundTick();
+        }
+    }
+
+    protected static void EndBackgroundBurst() {
+        s_isBackgroundBurstRunning = false;
+        s_backgroundTickSpentMillis += SystemClock.uptimeMillis() - s_backgroundBurstStartTime;
+        PauseUnityPlayer();
+    }
+
+    protected static boolean IsUnderThermalPressure() {
+        if (Build.VERSION.SDK_INT < 29 || UnityPlayer.currentActivity == null)
+            return false;
+
+        return IsUnderThermalPressure_API29();
+    }
+
+    @TargetApi(29)
+    protected static boolean IsUnderThermalPressure_API29() {
+        PowerManager powerManager = (PowerManager) UnityPlayer.currentActivity.getSystemService(Context.POWER_SERVICE);
+        return powerManager != null && powerManager.getCurrentThermalStatus() >= PowerManager.THERMAL_STATUS_MODERATE;
+    }
+
+    //PIP PERFORMANCE PROFILE
+
+    static OnPipPerformanceProfileListener s_pipPerformanceProfileUnityCallback = null;
+    static volatile int s_pipTargetFrameRate = 0;
+    static volatile float s_pipRenderScale = 1;
+    static volatile boolean s_pipUseSourceRectHint = false;
+    //Player size out of pip, used to follow pip window size with render scale
+    static int s_fullWidth = 0;
+    static int s_fullHeight = 0;
+
+    //Called with isPipMode true on pip entry and on every pip window resize, false on exit (revert to previous settings)
+    public interface OnPipPerformanceProfileListener {
+        void Execute(boolean isPipMode, int targetFrameRate, float renderScale, int windowWidth, int windowHeight);
+    }
+
+    public static void SetPipPerformanceProfileUnityCallback(OnPipPerformanceProfileListener pipPerformanceProfileUnityCallback) {
+        s_pipPerformanceProfileUnityCallback = pipPerformanceProfileUnityCallback;
+    }
+
+    //targetFrameRate: frame rate in pip (0 keeps current)
+    //renderScale: render scale in pip (0 follows pip window size relative to full size)
+    //useSourceRectHint: animate pip transition from player bounds
+    public static void SetPipPerformanceProfile(int targetFrameRate, float renderScale, boolean useSourceRectHint) {
+        s_pipTargetFrameRate = Math.max(0, targetFrameRate);
+        s_pipRenderScale = Math.max(0, Math.min(1, renderScale));
+        if (s_pipUseSourceRectHint != useSourceRectHint) {
+            s_pipUseSourceRectHint = useSourceRectHint;
+            RunOnUiThread(s_rebuildPipParams);
+        }
+
+        if (s_isPipMode)
+            RunOnUiThread(s_dispatchPipPerformanceProfile);
+    }
+
+    protected static void DispatchPipPerformanceProfile(boolean isPipMode) {
+        OnPipPerformanceProfileListener callback = s_pipPerformanceProfileUnityCallback;
+        if (callback == null)
+            return;
+
+        if (!isPipMode) {
+            callback.Execute(false, 0, 1, s_fullWidth, s_fullHeight);
+            return;
+        }
+
+        UnityPlayer unityPlayerInstance = GetUnityPlayerInstance();
+        int width = unityPlayerInstance != null ? unityPlayerInstance.getWidth() : 0;
+        int height = unityPlayerInstance != null ? unityPlayerInstance.getHeight() : 0;
+        float renderScale = s_pipRenderScale;
+        if (renderScale <= 0) {
+            renderScale = s_fullWidth > 0 && s_fullHeight > 0 && width > 0 && height > 0 ?
+                    Math.min(1, Math.max((float) width / s_fullWidth, (float) height / s_fullHeight)) : 1;
+        }
+        callback.Execute(true, s_pipTargetFrameRate, renderScale, width, height);
+    }
+
     public static void SetAutoPipModeOnPause(boolean supportPipModeOnPause) {
         s_autoPipModeOnPause = supportPipModeOnPause;
 
         TryCreateAndRegisterInstance();
+        RunOnUiThread(s_syncPipParams);
 
         //Close Activity when state changed to false and is in pipmode
         if(!s_autoPipModeOnPause && s_isPipMode)
@@ -56,14 +253,36 @@ public class BackgroundModeUtils implements Application.ActivityLifecycleCallbac
         return true;
     }
 
+    //Called from Unity thread the request is posted to the UI thread: returns true when it was posted,
+    //result arrives through OnPipModeChangedListener
     public static boolean EnterInPipMode() {
         if (!IsPipModeSupported()) {
             return false;
         }
 
+        if (Looper.myLooper() != Looper.getMainLooper()) {
+            if (UnityPlayer.currentActivity == null)
+                return false;
+            RunOnUiThread(s_enterInPipMode);
+            return true;
+        }
+
         return EnterInPipMode_API26();
     }
 
+    //Android 12+ enters pip by itself when user leaves the app (home button/gesture)
+    public static boolean IsAutoEnterPipSupported() {
+        return Build.VERSION.SDK_INT >= 31;
+    }
+
+    //Call from Activity.onUserLeaveHint of a custom activity to enter pip before the activity is paused (Android 8 to 11)
+    public static void OnUserLeaveHint() {
+        if (s_autoPipModeOnPause && IsPipModeSupported() && !IsAutoEnterPipSupported()) {
+            s_delayedHandler = null;
+            EnterInPipMode();
+        }
+    }
+
     public static boolean IsInPipMode() {
         if (!IsPipModeSupported()) {
             return false;
@@ -80,6 +299,7 @@ public class BackgroundModeUtils implements Application.ActivityLifecycleCallbac
             s_isPipMode = isPipMode;
             if(s_pipModeChangedUnityCallback != null)
                 s_pipModeChangedUnityCallback.Execute(s_isPipMode);
+            DispatchPipPerformanceProfile(s_isPipMode);
         }
     }
 
@@ -87,10 +307,7 @@ public class BackgroundModeUtils implements Application.ActivityLifecycleCallbac
     protected static boolean EnterInPipMode_API26() {
         UnityPlayer unityPlayerInstance = GetUnityPlayerInstance();
         if (unityPlayerInstance != null) {
-            Rational rational = new Rational(unityPlayerInstance.getWidth(), unityPlayerInstance.getHeight());
-            PictureInPictureParams params = new PictureInPictureParams.Builder()
-                    .setAspectRatio(rational)
-                    .build();
+            PictureInPictureParams params = GetPipParams_API26(unityPlayerInstance);
 
             if(!s_isPipMode) {
                 boolean isPipMode = UnityPlayer.currentActivity.enterPictureInPictureMode(params);
@@ -101,34 +318,196 @@ public class BackgroundModeUtils implements Application.ActivityLifecycleCallbac
         return false;
     }
 
+    //Pip params and player tracking are only touched on the UI thread, setters called by Unity post these
+    static final Runnable s_enterInPipMode = new Runnable() {
+        @Override
+        public void run() {
+            EnterInPipMode_API26();
+        }
+    };
+
+    static final Runnable s_syncPipParams = new Runnable() {
+        @Override
+        public void run() {
+            TrackUnityPlayerSize();
+            if (IsPipModeSupported())
+                UpdatePipParams_API26(false);
+        }
+    };
+
+    static final Runnable s_rebuildPipParams = new Runnable() {
+        @Override
+        public void run() {
+            s_pipParams = null;
+            if (IsPipModeSupported() && s_autoPipModeOnPause)
+                UpdatePipParams_API26(false);
+        }
+    };
+
+    static final Runnable s_dispatchPipPerformanceProfile = new Runnable() {
+        @Override
+        public void run() {
+            if (s_isPipMode)
+                DispatchPipPerformanceProfile(true);
+        }
+    };
+
+    static Handler s_mainHandler = null;
+
+    protected static synchronized Handler GetMainHandler() {
+        if (s_mainHandler == null)
+            s_mainHandler = new Handler(Looper.getMainLooper());
+        return s_mainHandler;
+    }
+
+    protected static void RunOnUiThread(Runnable runnable) {
+        Activity activity = UnityPlayer.currentActivity;
+        if (activity != null)
+            activity.runOnUiThread(runnable);
+    }
+
+    //Params built for last player size, reused until the size changes
+    static PictureInPictureParams s_pipParams = null;
+    static int s_pipParamsWidth = 0;
+    static int s_pipParamsHeight = 0;
+    static boolean s_pipParamsAutoEnter = false;
+    static WeakReference<View> s_trackedUnityPlayer = null;
+
+    @TargetApi(26)
+    protected static PictureInPictureParams GetPipParams_API26(UnityPlayer unityPlayerInstance) {
+        int width = unityPlayerInstance.getWidth();
+        int height = unityPlayerInstance.getHeight();
+        boolean autoEnter = s_autoPipModeOnPause && IsAutoEnterPipSupported();
+        if (s_pipParams == null || s_pipParamsWidth != width || s_pipParamsHeight != height || s_pipParamsAutoEnter != autoEnter) {
+            PictureInPictureParams.Builder builder = new PictureInPictureParams.Builder();
+            //System rejects aspect ratios out of 1:2.39 to 2.39:1
+            if (width > 0 && height > 0) {
+                builder.setAspectRatio(new Rational(Math.min(width, height * 239 / 100), Math.min(height, width * 239 / 100)));
+            }
+            if (IsAutoEnterPipSupported()) {
+                builder.setAutoEnterEnabled(autoEnter);
+            }
+            if (s_pipUseSourceRectHint) {
+                Rect sourceRectHint = new Rect();
+                if (unityPlayerInstance.getGlobalVisibleRect(sourceRectHint))
+                    builder.setSourceRectHint(sourceRectHint);
+            }
+            s_pipParams = builder.build();
+            s_pipParamsWidth = width;
+            s_pipParamsHeight = height;
+            s_pipParamsAutoEnter = autoEnter;
+        }
+        return s_pipParams;
+    }
+
+    //Push params to the activity so the system can auto enter pip (Android 12+) with the current aspect ratio
+    @TargetApi(26)
+    protected static void UpdatePipParams_API26(boolean force) {
+        UnityPlayer unityPlayerInstance = GetUnityPlayerInstance();
+        if (unityPlayerInstance == null)
+            return;
+
+        PictureInPictureParams previousParams = s_pipParams;
+        PictureInPictureParams params = GetPipParams_API26(unityPlayerInstance);
+        if ((force || params != previousParams) && (IsAutoEnterPipSupported() || s_isPipMode)) {
+            try {
+                UnityPlayer.currentActivity.setPictureInPictureParams(params);
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    //Keep pip params in sync with player size, also detects pip entered by the system
+    protected static void TrackUnityPlayerSize() {
+        UnityPlayer unityPlayerInstance = GetUnityPlayerInstance();
+        WeakReference<View> trackedUnityPlayer = s_trackedUnityPlayer;
+        if (unityPlayerInstance == null || (trackedUnityPlayer != null && trackedUnityPlayer.get() == unityPlayerInstance))
+            return;
+
+        s_trackedUnityPlayer = new WeakReference<View>(unityPlayerInstance);
+        //Player is usually laid out already, listener only sees later changes
+        if (!s_isPipMode && !IsInPipMode() && unityPlayerInstance.getWidth() > 0 && unityPlayerInstance.getHeight() > 0) {
+            s_fullWidth = unityPlayerInstance.getWidth();
+            s_fullHeight = unityPlayerInstance.getHeight();
+        }
+        unityPlayerInstance.addOnLayoutChangeListener(new View.OnLayoutChangeListener() {
+            @Override
+            public void onLayoutChange(View view, int left, int top, int right, int bottom,
+                                       int oldLeft, int oldTop, int oldRight, int oldBottom) {
+                if (right - left == oldRight - oldLeft && bottom - top == oldBottom - oldTop)
+                    return;
+
+                boolean isInPipMode = IsInPipMode();
+                if (!s_isPipMode && !isInPipMode) {
+                    s_fullWidth = right - left;
+                    s_fullHeight = bottom - top;
+                }
+
+                if (IsPipModeSupported()) {
+                    if (s_autoPipModeOnPause)
+                        UpdatePipParams_API26(false);
+                    if (isInPipMode && !s_isPipMode) {
+                        s_delayedHandler = null;
+                        ResumeUnityPlayer();
+                        SetPipModeStateCallingEvents_Internal(true);
+                    } else if (s_isPipMode) {
+                        //Pip window resized, let render scale follow it
+                        DispatchPipPerformanceProfile(true);
+                    }
+                }
+            }
+        });
+    }
+
     @TargetApi(26)
     protected static boolean IsInPipMode_API26() {
         return UnityPlayer.currentActivity.isInPictureInPictureMode();
     }
 
+    //Register callbacks once per Application, already registered case only does volatile reads
     protected static void TryCreateAndRegisterInstance() {
+        Activity activity = UnityPlayer.currentActivity;
+        Application registeredApplication = s_registeredApplication;
+        if (registeredApplication != null && (activity == null || activity.getApplication() == registeredApplication))
+            return;
+
+        RegisterInstance(activity);
+    }
+
+    protected static synchronized void RegisterInstance(Activity activity) {
         try {
             if (s_instance == null) {
                 s_instance = new BackgroundModeUtils();
             }
 
-            if(UnityPlayer.currentActivity != null) {
-                Application app = UnityPlayer.currentActivity.getApplication();
-                app.unregisterActivityLifecycleCallbacks(s_instance);
+            if(activity != null) {
+                Application app = activity.getApplication();
+                if (app == null || app == s_registeredApplication)
+                    return;
+
+                if (s_registeredApplication != null) {
+                    s_registeredApplication.unregisterActivityLifecycleCallbacks(s_instance);
+                    s_registeredApplication.unregisterComponentCallbacks(s_instance);
+                }
                 app.registerActivityLifecycleCallbacks(s_instance);
+                app.registerComponentCallbacks(s_instance);
+                s_registeredApplication = app;
             }
         } catch (Exception e) {
             e.printStackTrace();
         }
     }
 
-    protected static void UnregisterInstance() {
+    protected static synchronized void UnregisterInstance() {
         try {
             s_delayedHandler = null;
-            if (s_instance != null && UnityPlayer.currentActivity != null) {
-                Application app = UnityPlayer.currentActivity.getApplication();
+            Application app = s_registeredApplication;
+            if (s_instance != null && app != null) {
+                s_registeredApplication = null;
 
                 app.unregisterActivityLifecycleCallbacks(s_instance);
+                app.unregisterComponentCallbacks(s_instance);
             }
         } catch (Exception e) {
             e.printStackTrace();
@@ -151,23 +530,67 @@ public class BackgroundModeUtils implements Application.ActivityLifecycleCallbac
             unityPlayerInstance.pause();
     }
 
-    protected static UnityPlayer GetUnityPlayerInstance() {
-        try {
-            Field field = UnityPlayer.currentActivity.getClass().getDeclaredField("mUnityPlayer");
-            field.setAccessible(true);
+    //Player resolved for an activity, cleared when that activity is destroyed
+    static volatile WeakReference<Activity> s_cachedActivity = null;
+    static volatile WeakReference<UnityPlayer> s_cachedUnityPlayer = null;
+    //Accessor resolved for an activity class (null field means class has no mUnityPlayer)
+    static Class<?> s_unityPlayerFieldOwner = null;
+    static Field s_unityPlayerField = null;
 
-            UnityPlayer unityPlayerInstance = (UnityPlayer)field.get(UnityPlayer.currentActivity);
+    protected static UnityPlayer GetUnityPlayerInstance() {
+        Activity activity = UnityPlayer.currentActivity;
+        if (activity == null)
+            return null;
+
+        WeakReference<Activity> cachedActivity = s_cachedActivity;
+        WeakReference<UnityPlayer> cachedUnityPlayer = s_cachedUnityPlayer;
+        if (cachedActivity != null && cachedUnityPlayer != null && cachedActivity.get() == activity) {
+            UnityPlayer unityPlayerInstance = cachedUnityPlayer.get();
+            if (unityPlayerInstance != null)
+                return unityPlayerInstance;
+        }
 
+        try {
+            Field field = GetUnityPlayerField(activity.getClass());
+            if (field == null)
+                return null;
+
+            UnityPlayer unityPlayerInstance = (UnityPlayer)field.get(activity);
+            if (unityPlayerInstance != null) {
+                s_cachedUnityPlayer = new WeakReference<>(unityPlayerInstance);
+                s_cachedActivity = new WeakReference<>(activity);
+            }
             return unityPlayerInstance;
         } catch (IllegalAccessException e) {
             e.printStackTrace();
-        } catch (NoSuchFieldException e) {
-            e.printStackTrace();
         }
 
         return null;
     }
 
+    protected static synchronized Field GetUnityPlayerField(Class<?> activityClass) {
+        if (s_unityPlayerFieldOwner != activityClass) {
+            Field field = null;
+            try {
+                field = activityClass.getDeclaredField("mUnityPlayer");
+                field.setAccessible(true);
+            } catch (NoSuchFieldException e) {
+                e.printStackTrace();
+            }
+            s_unityPlayerField = field;
+            s_unityPlayerFieldOwner = activityClass;
+        }
+        return s_unityPlayerField;
+    }
+
+    protected static void ClearCachedUnityPlayer(Activity activity) {
+        WeakReference<Activity> cachedActivity = s_cachedActivity;
+        if (cachedActivity != null && cachedActivity.get() == activity) {
+            s_cachedActivity = null;
+            s_cachedUnityPlayer = null;
+        }
+    }
+
     //ACTIVITY LIFE CYCLE
 
     @Override
@@ -177,6 +600,8 @@ public class BackgroundModeUtils implements Application.ActivityLifecycleCallbac
 
     @Override
     public void onActivityStarted(Activity activity) {
+        if (activity == UnityPlayer.currentActivity)
+            CancelBackgroundTick();
 
     }
 
@@ -184,8 +609,25 @@ public class BackgroundModeUtils implements Application.ActivityLifecycleCallbac
     public void onActivityResumed(Activity activity) {
         s_delayedHandler = null;
         SetPipModeStateCallingEvents_Internal(false);
+        if (activity == UnityPlayer.currentActivity) {
+            TrackUnityPlayerSize();
+            //Recreated activity starts with default params
+            if (s_autoPipModeOnPause && IsAutoEnterPipSupported())
+                UpdatePipParams_API26(true);
+        }
     }
 
+    //Posted from onActivityPaused, runs after UnityPlayerActivity.onPause paused the player
+    static final Runnable s_resumeInPipMode = new Runnable() {
+        @Override
+        public void run() {
+            if (IsInPipMode()) {
+                ResumeUnityPlayer();
+                SetPipModeStateCallingEvents_Internal(true);
+            }
+        }
+    };
+
     //Used to control if activity is axecuting delayed
     static volatile Handler s_delayedHandler = null;
     @Override
@@ -195,7 +637,18 @@ public class BackgroundModeUtils implements Application.ActivityLifecycleCallbac
                 s_autoPipModeOnPause &&
                 IsPipModeSupported())
         {
+            //Already entered natively (auto enter or OnUserLeaveHint), player is resumed once the activity paused it
+            if (IsInPipMode()) {
+                s_delayedHandler = null;
+                GetMainHandler().post(s_resumeInPipMode);
+                return;
+            }
+
+            //System enters pip on user leave, other pauses must not open pip
+            if (IsAutoEnterPipSupported())
+                return;
 
+            //Fallback for activities that do not forward onUserLeaveHint
             final Handler handler = new Handler(Looper.getMainLooper());
             s_delayedHandler = handler;
 
@@ -220,6 +673,9 @@ public class BackgroundModeUtils implements Application.ActivityLifecycleCallbac
             SetPipModeStateCallingEvents_Internal(false);
             PauseUnityPlayer();
         }
+
+        if (activity == UnityPlayer.currentActivity && !activity.isFinishing())
+            StartBackgroundTick();
     }
 
     @Override
@@ -230,5 +686,27 @@ public class BackgroundModeUtils implements Application.ActivityLifecycleCallbac
     @Override
     public void onActivityDestroyed(Activity activity) {
         s_delayedHandler = null;
+        if (activity == UnityPlayer.currentActivity)
+            CancelBackgroundTick();
+        ClearCachedUnityPlayer(activity);
+    }
+
+    //MEMORY PRESSURE
+
+    @Override
+    public void onTrimMemory(int level) {
+        //Background levels are sent routinely, only give up ticking when system starts to kill background apps
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_MODERATE || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL)
+            StopBackgroundTick();
+    }
+
+    @Override
+    public void onLowMemory() {
+        StopBackgroundTick();
+    }
+
+    @Override
+    public void onConfigurationChanged(Configuration configuration) {
+
     }
 }